@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import cz.jirutka.spring.exhandler.messages.ErrorMessage;
+import io.barracks.commons.exceptions.BarracksServiceClientException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceClientExceptionHandlerBenchmark {
+
+    @Param({"small", "large", "html"})
+    public String body;
+
+    private DefaultServiceClientExceptionHandler handler;
+    private MockHttpServletRequest request;
+    private BarracksServiceClientException exception;
+
+    static String smallErrorBody() {
+        return "{\"type\":\"http://httpstatus.es/400\",\"title\":\"Invalid Request Parameters\",\"status\":400," +
+                "\"detail\":\"The request you've sent contains 1 validation errors.\"," +
+                "\"errors\":[{\"message\":\"start before end\",\"rejected\":\"@!123344[sdasdsa]\",\"field\":\"date\"}]}";
+    }
+
+    static String largeErrorBody() {
+        final StringBuilder builder = new StringBuilder("{\"type\":\"http://httpstatus.es/400\",\"title\":\"Invalid Request Parameters\",\"status\":400,")
+                .append("\"detail\":\"The request you've sent contains 1000 validation errors.\",\"errors\":[");
+        for (int i = 0; i < 1000; i++) {
+            builder.append(i == 0 ? "" : ",")
+                    .append("{\"message\":\"must not be null\",\"rejected\":null,\"field\":\"field").append(i).append("\"}");
+        }
+        return builder.append("]}").toString();
+    }
+
+    static String htmlErrorBody() {
+        final StringBuilder builder = new StringBuilder("<html><head><title>502 Bad Gateway</title></head><body>");
+        while (builder.length() < 1024 * 1024) {
+            builder.append("<p>The upstream server returned an invalid response.</p>");
+        }
+        return builder.append("</body></html>").toString();
+    }
+
+    @Setup
+    public void setUp() {
+        final String content;
+        switch (body) {
+            case "small":
+                content = smallErrorBody();
+                break;
+            case "large":
+                content = largeErrorBody();
+                break;
+            default:
+                content = htmlErrorBody();
+        }
+        handler = new DefaultServiceClientExceptionHandler();
+        handler.setMessageSource(new ExceptionHandlingConfiguration() {
+        }.httpErrorMessageSource());
+        request = new MockHttpServletRequest("GET", "/devices/unit-1");
+        exception = new BenchmarkException(new HttpClientErrorException(
+                HttpStatus.BAD_REQUEST, HttpStatus.BAD_REQUEST.getReasonPhrase(), content.getBytes(UTF_8), UTF_8
+        ));
+    }
+
+    @Benchmark
+    public ErrorMessage createBody() {
+        return handler.createBody(exception, request);
+    }
+
+    private static final class BenchmarkException extends BarracksServiceClientException {
+        private BenchmarkException(HttpStatusCodeException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import cz.jirutka.spring.exhandler.messages.ErrorMessage;
+import io.barracks.commons.exceptions.BarracksServiceClientException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Simulates an upstream outage: every call fails with a service client exception thrown from deep in the stack, then
+ * handled from several threads at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ServiceClientOutageBenchmark {
+
+    @Param({"true", "false"})
+    public boolean writableStackTrace;
+
+    @Param({"100"})
+    public int depth;
+
+    private DefaultServiceClientExceptionHandler handler;
+    private MockHttpServletRequest request;
+    private HttpStatusCodeException upstreamError;
+
+    @Setup
+    public void setUp() {
+        handler = new DefaultServiceClientExceptionHandler();
+        handler.setMessageSource(new ExceptionHandlingConfiguration() {
+        }.httpErrorMessageSource());
+        request = new MockHttpServletRequest("GET", "/devices/unit-1");
+        upstreamError = new HttpServerErrorException(
+                HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                ServiceClientExceptionHandlerBenchmark.smallErrorBody().getBytes(UTF_8), UTF_8
+        );
+    }
+
+    @Benchmark
+    public BarracksServiceClientException throwException() {
+        try {
+            callUpstream(depth);
+            return null;
+        } catch (BarracksServiceClientException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorMessage> throwAndHandleException() {
+        try {
+            callUpstream(depth);
+            return null;
+        } catch (BarracksServiceClientException e) {
+            return handler.handleException(e, request);
+        }
+    }
+
+    private void callUpstream(int remaining) {
+        if (remaining == 0) {
+            throw new OutageException(upstreamError, writableStackTrace);
+        }
+        callUpstream(remaining - 1);
+    }
+
+    private static final class OutageException extends BarracksServiceClientException {
+        private OutageException(HttpStatusCodeException cause, boolean writableStackTrace) {
+            super(cause, writableStackTrace);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.logging;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.SourceLocation;
+import org.aspectj.runtime.internal.AroundClosure;
+
+import java.lang.reflect.Modifier;
+
+class StubJoinPoint implements ProceedingJoinPoint {
+
+    private final Object target;
+    private final Signature signature;
+    private final Object[] args;
+    private final Object returnedValue;
+    private final Throwable thrown;
+
+    StubJoinPoint(Object target, String methodName, Object[] args, Object returnedValue, Throwable thrown) {
+        this.target = target;
+        this.signature = new StubSignature(target.getClass(), methodName);
+        this.args = args;
+        this.returnedValue = returnedValue;
+        this.thrown = thrown;
+    }
+
+    @Override
+    public void set$AroundClosure(AroundClosure arc) {
+    }
+
+    @Override
+    public Object proceed() throws Throwable {
+        if (thrown != null) {
+            throw thrown;
+        }
+        return returnedValue;
+    }
+
+    @Override
+    public Object proceed(Object[] args) throws Throwable {
+        return proceed();
+    }
+
+    @Override
+    public String toShortString() {
+        return signature.toShortString();
+    }
+
+    @Override
+    public String toLongString() {
+        return signature.toLongString();
+    }
+
+    @Override
+    public Object getThis() {
+        return target;
+    }
+
+    @Override
+    public Object getTarget() {
+        return target;
+    }
+
+    @Override
+    public Object[] getArgs() {
+        return args.clone();
+    }
+
+    @Override
+    public Signature getSignature() {
+        return signature;
+    }
+
+    @Override
+    public SourceLocation getSourceLocation() {
+        return null;
+    }
+
+    @Override
+    public String getKind() {
+        return METHOD_EXECUTION;
+    }
+
+    @Override
+    public StaticPart getStaticPart() {
+        return null;
+    }
+
+    private static final class StubSignature implements Signature {
+
+        private final Class<?> declaringType;
+        private final String name;
+
+        private StubSignature(Class<?> declaringType, String name) {
+            this.declaringType = declaringType;
+            this.name = name;
+        }
+
+        @Override
+        public String toShortString() {
+            return declaringType.getSimpleName() + "." + name + "(..)";
+        }
+
+        @Override
+        public String toLongString() {
+            return declaringType.getName() + "." + name + "(..)";
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int getModifiers() {
+            return Modifier.PUBLIC;
+        }
+
+        @Override
+        public Class getDeclaringType() {
+            return declaringType;
+        }
+
+        @Override
+        public String getDeclaringTypeName() {
+            return declaringType.getName();
+        }
+    }
+}
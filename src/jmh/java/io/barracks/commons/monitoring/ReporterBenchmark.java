@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one reporting cycle over 10k timers, a tenth of which were updated since the previous cycle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 20, time = 1)
+@Fork(2)
+public class ReporterBenchmark {
+
+    private static final int METRIC_COUNT = 10000;
+
+    @Param({"true", "false"})
+    public boolean cachedSnapshots;
+
+    private MetricRegistry registry;
+    private UdpReporter reporter;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        registry = new ReservoirMetricRegistry(() -> {
+            final Reservoir reservoir = new ExponentiallyDecayingReservoir();
+            return cachedSnapshots ? new SnapshotCachingReservoir(reservoir) : reservoir;
+        });
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            for (int j = 0; j < 100; j++) {
+                registry.timer("manager.Service" + (i % 100) + ".method" + i).update(ThreadLocalRandom.current().nextLong(1000000), TimeUnit.NANOSECONDS);
+            }
+        }
+        reporter = UdpReporter.forRegistry(registry)
+                .prefixedWith("barracks.benchmark")
+                .convertRatesTo(TimeUnit.SECONDS)
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build(new InetSocketAddress(InetAddress.getLoopbackAddress(), 9));
+    }
+
+    @TearDown
+    public void tearDown() {
+        reporter.stop();
+    }
+
+    /**
+     * Runs outside of the measurement: only the reporter thread's work is timed. A cycle lasts long enough for the
+     * per invocation setup overhead to be negligible.
+     */
+    @Setup(Level.Invocation)
+    public void updateTenth() {
+        for (int i = 0; i < METRIC_COUNT / 10; i++) {
+            next = (next + 1) % METRIC_COUNT;
+            registry.timer("manager.Service" + (next % 100) + ".method" + next).update(next, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Benchmark
+    public void report() {
+        reporter.report();
+    }
+}
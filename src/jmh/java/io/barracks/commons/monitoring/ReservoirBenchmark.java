@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Timer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservoirBenchmark {
+
+    @Param({"EXPONENTIALLY_DECAYING", "HDR_HISTOGRAM", "SLIDING_TIME_WINDOW_ARRAY"})
+    public ReservoirType type;
+
+    private Timer timer;
+
+    @Setup
+    public void setUp() {
+        final Reservoir reservoir;
+        switch (type) {
+            case HDR_HISTOGRAM:
+                reservoir = new HdrHistogramReservoir();
+                break;
+            case SLIDING_TIME_WINDOW_ARRAY:
+                reservoir = new SlidingTimeWindowArrayReservoir(60, TimeUnit.SECONDS);
+                break;
+            default:
+                reservoir = new ExponentiallyDecayingReservoir();
+        }
+        timer = new Timer(reservoir);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void update8Threads() {
+        update();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void update32Threads() {
+        update();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void update64Threads() {
+        update();
+    }
+
+    private void update() {
+        timer.update(ThreadLocalRandom.current().nextLong(1000, 10000000), TimeUnit.NANOSECONDS);
+    }
+}
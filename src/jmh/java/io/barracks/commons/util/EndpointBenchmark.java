@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndpointBenchmark {
+
+    private static final String BASE_URL = "https://not.barracks.io";
+
+    private static final Endpoint FEW_PLACEHOLDERS = Endpoint.from(HttpMethod.GET, "/devices/{unitId}");
+    private static final Endpoint MANY_PLACEHOLDERS = Endpoint.from(
+            HttpMethod.GET,
+            "/owners/{userId}/devices/{unitId}/packages/{reference}/versions/{version}/events/{eventId}",
+            "segment={segmentId}&filter={filter}"
+    );
+
+    @Param({"none", "pageable", "all"})
+    public String parameters;
+
+    private Pageable pageable;
+    private MultiValueMap<String, String> queryParams;
+
+    @Setup
+    public void setUp() {
+        if (!"none".equals(parameters)) {
+            pageable = new PageRequest(2, 20, new Sort(Sort.Direction.DESC, "receptionDate", "unitId"));
+        }
+        if ("all".equals(parameters)) {
+            queryParams = new LinkedMultiValueMap<>();
+            queryParams.add("query", "{\"eq\":{\"unitId\":\"unit 1\"}}");
+        }
+    }
+
+    @Benchmark
+    public URI fewPlaceholders() {
+        return FEW_PLACEHOLDERS.withBase(BASE_URL).pageable(pageable).queryParams(queryParams)
+                .getURI("unit-1");
+    }
+
+    @Benchmark
+    public URI manyPlaceholders() {
+        return MANY_PLACEHOLDERS.withBase(BASE_URL).pageable(pageable).queryParams(queryParams)
+                .getURI("user@barracks.io", "unit 1", "io.barracks.package", "1.0.0", 42, "segment/1", "name,asc");
+    }
+}
@@ -24,36 +24,71 @@
 
 package io.barracks.commons.configuration;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.jirutka.spring.exhandler.messages.ErrorMessage;
 import io.barracks.commons.exceptions.BarracksServiceClientException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.client.HttpStatusCodeException;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
 
 public class DefaultServiceClientExceptionHandler extends BarracksServiceClientExceptionHandler<BarracksServiceClientException> {
 
-    private final ObjectMapper mapper = new ObjectMapper();;
+    public static final int DEFAULT_MAX_BODY_SIZE = 64 * 1024;
+    public static final Set<String> DEFAULT_EXTENSION_PROPERTIES = Collections.singleton("errors");
+
     private final Logger logger = LoggerFactory.getLogger(BarracksServiceClientExceptionHandler.class);
+    private final StreamingErrorMessageReader reader;
+
+    public DefaultServiceClientExceptionHandler() {
+        this(DEFAULT_MAX_BODY_SIZE, DEFAULT_EXTENSION_PROPERTIES);
+    }
+
+    public DefaultServiceClientExceptionHandler(int maxBodySize, Set<String> extensionProperties) {
+        this(new ErrorMessageCodec(), maxBodySize, extensionProperties);
+    }
+
+    public DefaultServiceClientExceptionHandler(ErrorMessageCodec codec, int maxBodySize, Set<String> extensionProperties) {
+        this.reader = new StreamingErrorMessageReader(codec.getObjectMapper(), maxBodySize, extensionProperties);
+    }
 
     @Override
     public ErrorMessage createBody(BarracksServiceClientException ex, HttpServletRequest req) {
-        final String message = ex.getCause().getResponseBodyAsString();
-        try {
-            final ErrorMessage mapped = mapper.readValue(message, ExtendedErrorMessage.class);
-            if (mapped.getStatus() != null) {
-                return mapped;
+        final HttpStatusCodeException cause = ex.getCause();
+        final byte[] body = cause.getResponseBodyAsByteArray();
+        if (reader.isCandidate(body)) {
+            try {
+                final ErrorMessage mapped = reader.read(body);
+                if (mapped.getStatus() != null) {
+                    return mapped;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to parse client exception returned by {}", req.getRequestURI(), ex);
             }
-        } catch (IOException e) {
-            logger.warn("Failed to parse client exception returned by {}", req.getRequestURI(), ex);
+        } else {
+            logger.warn("Client exception returned by {} is not a JSON error of at most {} bytes", req.getRequestURI(), reader.getMaxBodySize());
         }
         final ErrorMessage errorMessage = new ErrorMessage(super.createBody(ex, req));
-        errorMessage.setStatus(ex.getCause().getStatusCode());
-        errorMessage.setTitle(ex.getCause().getStatusText());
-        errorMessage.setDetail(message);
+        errorMessage.setStatus(cause.getStatusCode());
+        errorMessage.setTitle(cause.getStatusText());
+        errorMessage.setDetail(getDetail(cause, body));
         return errorMessage;
     }
 
+    private String getDetail(HttpStatusCodeException cause, byte[] body) {
+        if (body.length <= reader.getMaxBodySize()) {
+            return cause.getResponseBodyAsString();
+        }
+        final Charset charset = cause.getResponseHeaders() != null && cause.getResponseHeaders().getContentType() != null
+                && cause.getResponseHeaders().getContentType().getCharset() != null
+                ? cause.getResponseHeaders().getContentType().getCharset()
+                : StandardCharsets.ISO_8859_1;
+        return new String(body, 0, reader.getMaxBodySize(), charset);
+    }
+
 }
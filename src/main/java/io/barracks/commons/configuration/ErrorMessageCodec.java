@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import cz.jirutka.spring.exhandler.messages.ErrorMessage;
+import cz.jirutka.spring.exhandler.messages.ValidationErrorMessage;
+import cz.jirutka.spring.exhandler.support.HttpMessageConverterUtils;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares one {@link ObjectMapper} and pre-warmed {@link ObjectReader}s and {@link ObjectWriter}s between all the error
+ * handlers, for {@link ErrorMessage}, {@link ExtendedErrorMessage} and {@link ValidationErrorMessage}.
+ * <p>
+ * {@link ValidationErrorMessage} is only written: its errors have no creator Jackson could read them with.
+ * <p>
+ * The given mapper is used as is, so its serializer caches are shared with the rest of the application. Only when
+ * Afterburner is requested and present on the classpath, it is registered on a copy of the mapper: the codec then
+ * works with its own caches and never alters the given mapper.
+ */
+public class ErrorMessageCodec {
+
+    private static final boolean AFTERBURNER_PRESENT = ClassUtils.isPresent(
+            "com.fasterxml.jackson.module.afterburner.AfterburnerModule", ErrorMessageCodec.class.getClassLoader()
+    );
+    private static final List<Class<? extends ErrorMessage>> READABLE_TYPES = Collections.unmodifiableList(Arrays.asList(
+            ErrorMessage.class, ExtendedErrorMessage.class
+    ));
+    private static final List<Class<? extends ErrorMessage>> WRITABLE_TYPES = Collections.unmodifiableList(Arrays.asList(
+            ErrorMessage.class, ExtendedErrorMessage.class, ValidationErrorMessage.class
+    ));
+
+    private final ObjectMapper mapper;
+    private final boolean afterburner;
+    private final Map<Class<?>, ObjectReader> readers;
+    private final Map<Class<?>, ObjectWriter> writers;
+
+    public ErrorMessageCodec() {
+        this(Jackson2ObjectMapperBuilder.json().build(), false);
+    }
+
+    public ErrorMessageCodec(ObjectMapper mapper, boolean afterburner) {
+        this.afterburner = afterburner && AFTERBURNER_PRESENT;
+        this.mapper = this.afterburner ? AfterburnerRegistrar.register(mapper.copy()) : mapper;
+        final Map<Class<?>, ObjectReader> readers = new HashMap<>();
+        final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+        for (Class<? extends ErrorMessage> type : READABLE_TYPES) {
+            readers.put(type, this.mapper.readerFor(type));
+        }
+        for (Class<? extends ErrorMessage> type : WRITABLE_TYPES) {
+            writers.put(type, this.mapper.writerFor(type));
+        }
+        this.readers = Collections.unmodifiableMap(readers);
+        this.writers = Collections.unmodifiableMap(writers);
+        warmUp();
+    }
+
+    public static boolean isAfterburnerAvailable() {
+        return AFTERBURNER_PRESENT;
+    }
+
+    public boolean isAfterburnerEnabled() {
+        return afterburner;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return mapper;
+    }
+
+    public ObjectReader getReader(Class<? extends ErrorMessage> type) {
+        final ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            throw new IllegalArgumentException("Unsupported error message type " + type.getName());
+        }
+        return reader;
+    }
+
+    /**
+     * Returns the writer registered for the exact type of the message, or a new writer for unknown subclasses.
+     */
+    public ObjectWriter getWriter(Class<?> type) {
+        final ObjectWriter writer = writers.get(type);
+        return writer != null ? writer : mapper.writerFor(type);
+    }
+
+    public byte[] write(ErrorMessage message) throws IOException {
+        return getWriter(message.getClass()).writeValueAsBytes(message);
+    }
+
+    /**
+     * Returns the default converters of the exception handler with the JSON one bound to this codec.
+     */
+    public List<HttpMessageConverter<?>> getHttpMessageConverters() {
+        final List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        for (HttpMessageConverter<?> converter : HttpMessageConverterUtils.getDefaultHttpMessageConverters()) {
+            converters.add(converter instanceof MappingJackson2HttpMessageConverter ? new ErrorMessageHttpMessageConverter(this) : converter);
+        }
+        return converters;
+    }
+
+    private void warmUp() {
+        final ErrorMessage errorMessage = sample(new ErrorMessage());
+        final ExtendedErrorMessage extendedErrorMessage = sample(new ExtendedErrorMessage());
+        extendedErrorMessage.set("errors", TextNode.valueOf("warm-up"));
+        final ValidationErrorMessage validationErrorMessage = sample(new ValidationErrorMessage());
+        validationErrorMessage.addError("warm-up");
+        validationErrorMessage.addError("field", "value", "warm-up");
+        try {
+            for (ErrorMessage message : Arrays.asList(errorMessage, extendedErrorMessage, validationErrorMessage)) {
+                final byte[] bytes = write(message);
+                if (readers.containsKey(message.getClass())) {
+                    readers.get(message.getClass()).readValue(bytes);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to warm up the error message codec", e);
+        }
+    }
+
+    private static <T extends ErrorMessage> T sample(T message) {
+        message.setType(URI.create("http://localhost/warm-up"));
+        message.setTitle("Warm-up");
+        message.setStatus(500);
+        message.setDetail("Warm-up");
+        message.setInstance(URI.create("/warm-up"));
+        return message;
+    }
+
+    private static final class AfterburnerRegistrar {
+        static ObjectMapper register(ObjectMapper mapper) {
+            return mapper.registerModule(new AfterburnerModule());
+        }
+    }
+
+    private static final class ErrorMessageHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+        private final ErrorMessageCodec codec;
+
+        ErrorMessageHttpMessageConverter(ErrorMessageCodec codec) {
+            super(codec.getObjectMapper());
+            this.codec = codec;
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            if (object instanceof PrerenderedErrorMessage) {
+                ((PrerenderedErrorMessage) object).writeTo(outputMessage.getBody());
+            } else if (object instanceof ErrorMessage) {
+                try {
+                    outputMessage.getBody().write(codec.write((ErrorMessage) object));
+                } catch (IOException e) {
+                    throw new HttpMessageNotWritableException("Could not write error message: " + e.getMessage(), e);
+                }
+            } else {
+                super.writeInternal(object, type, outputMessage);
+            }
+        }
+    }
+}
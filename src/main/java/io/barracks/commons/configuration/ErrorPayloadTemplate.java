@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import cz.jirutka.spring.exhandler.messages.ErrorMessage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A pre-serialized error payload.
+ * <p>
+ * When the instance is resolved for each request, the payload is split around a placeholder instance so that the
+ * escaped value can be spliced in without serializing the whole message again.
+ */
+final class ErrorPayloadTemplate {
+
+    static final ErrorPayloadTemplate NOT_CACHEABLE = new ErrorPayloadTemplate(null, null, null, null);
+
+    private static final String INSTANCE_PLACEHOLDER = "urn:x-barracks:instance";
+    private static final byte[] QUOTED_PLACEHOLDER = ('"' + INSTANCE_PLACEHOLDER + '"').getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ErrorMessage message;
+    private final byte[] withoutInstance;
+    private final byte[] prefix;
+    private final byte[] suffix;
+
+    private ErrorPayloadTemplate(ErrorMessage message, byte[] withoutInstance, byte[] prefix, byte[] suffix) {
+        this.message = message;
+        this.withoutInstance = withoutInstance;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    static ErrorPayloadTemplate ofStaticMessage(ErrorMessageCodec codec, ErrorMessage message) throws IOException {
+        return new ErrorPayloadTemplate(new ErrorMessage(message), codec.write(message), null, null);
+    }
+
+    static ErrorPayloadTemplate ofDynamicInstance(ErrorMessageCodec codec, ErrorMessage message) throws IOException {
+        final ErrorMessage template = new ErrorMessage(message);
+        template.setInstance(null);
+        final byte[] withoutInstance = codec.write(template);
+        template.setInstance(URI.create(INSTANCE_PLACEHOLDER));
+        final byte[] withPlaceholder = codec.write(template);
+        template.setInstance(null);
+        final int index = indexOf(withPlaceholder, QUOTED_PLACEHOLDER);
+        if (index < 0) {
+            throw new IOException("Instance placeholder not found in the serialized error message");
+        }
+        return new ErrorPayloadTemplate(
+                template,
+                withoutInstance,
+                Arrays.copyOfRange(withPlaceholder, 0, index + 1),
+                Arrays.copyOfRange(withPlaceholder, index + QUOTED_PLACEHOLDER.length - 1, withPlaceholder.length)
+        );
+    }
+
+    boolean isCacheable() {
+        return message != null;
+    }
+
+    boolean hasDynamicInstance() {
+        return prefix != null;
+    }
+
+    PrerenderedErrorMessage render(String instance) {
+        if (!hasDynamicInstance() || instance == null || instance.isEmpty()) {
+            return new PrerenderedErrorMessage(message, instance, withoutInstance, EMPTY, EMPTY);
+        }
+        final byte[] escaped = JsonStringEncoder.getInstance().quoteAsUTF8(instance);
+        return new PrerenderedErrorMessage(message, instance, prefix, escaped, suffix);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= bytes.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
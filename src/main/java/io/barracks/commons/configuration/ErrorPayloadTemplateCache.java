@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds the pre-serialized error payloads, keyed by exception type, status and locale.
+ * <p>
+ * The cache stops growing once {@code maxSize} entries are stored: the templates of unusual locales are then built
+ * for each error instead of being kept.
+ */
+public class ErrorPayloadTemplateCache {
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final ConcurrentMap<Key, ErrorPayloadTemplate> templates = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public ErrorPayloadTemplateCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ErrorPayloadTemplateCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+
+    ErrorPayloadTemplate get(Class<?> type, HttpStatus status, Locale locale, Supplier<ErrorPayloadTemplate> factory) {
+        final Key key = new Key(type, status, locale);
+        final ErrorPayloadTemplate template = templates.get(key);
+        if (template != null) {
+            return template;
+        }
+        final ErrorPayloadTemplate created = factory.get();
+        if (templates.size() >= maxSize) {
+            return created;
+        }
+        final ErrorPayloadTemplate previous = templates.putIfAbsent(key, created);
+        return previous != null ? previous : created;
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final HttpStatus status;
+        private final Locale locale;
+        private final int hashCode;
+
+        Key(Class<?> type, HttpStatus status, Locale locale) {
+            this.type = type;
+            this.status = status;
+            this.locale = locale;
+            this.hashCode = Objects.hash(type, status, locale);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return type == key.type && status == key.status && Objects.equals(locale, key.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
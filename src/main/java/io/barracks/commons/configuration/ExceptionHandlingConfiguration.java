@@ -24,21 +24,28 @@
 
 package io.barracks.commons.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.jirutka.spring.exhandler.RestHandlerExceptionResolver;
 import cz.jirutka.spring.exhandler.RestHandlerExceptionResolverBuilder;
 import cz.jirutka.spring.exhandler.support.HttpMessageConverterUtils;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 public abstract class ExceptionHandlingConfiguration extends WebMvcConfigurerAdapter {
+    private static final String COMMON_MESSAGES_BASENAME = "classpath:/io/barracks/commons/configuration/messages";
+
     public ExceptionHandlingConfiguration() {
     }
 
@@ -52,17 +59,35 @@ public abstract class ExceptionHandlingConfiguration extends WebMvcConfigurerAda
     public RestHandlerExceptionResolverBuilder restExceptionResolver() {
         return RestHandlerExceptionResolver.builder()
                 .messageSource(httpErrorMessageSource())
+                .withDefaultMessageSource(!isPrecomputedMessageSource())
+                .httpMessageConverters(errorMessageCodec().getHttpMessageConverters())
                 .defaultContentType(MediaType.APPLICATION_JSON)
                 .addHandler(new BindExceptionHandler())
                 .addHandler(new MethodArgumentNotValidHandler())
-                .addHandler(new DefaultServiceClientExceptionHandler())
-                .addErrorMessageHandler(IllegalArgumentException.class, HttpStatus.BAD_REQUEST);
+                .addHandler(new DefaultServiceClientExceptionHandler(errorMessageCodec(), getMaxErrorBodySize(), getErrorExtensionProperties()))
+                .addHandler(new PrerenderedErrorMessageHandler<>(IllegalArgumentException.class, HttpStatus.BAD_REQUEST, errorMessageCodec(), errorPayloadTemplateCache()));
+    }
+
+    @Bean
+    public ErrorMessageCodec errorMessageCodec() {
+        return new ErrorMessageCodec(getErrorObjectMapper(), isAfterburnerEnabled());
+    }
+
+    @Bean
+    public ErrorPayloadTemplateCache errorPayloadTemplateCache() {
+        return new ErrorPayloadTemplateCache(getMaxErrorPayloadTemplates());
     }
 
     @Bean
     public MessageSource httpErrorMessageSource() {
+        if (isPrecomputedMessageSource()) {
+            return PrecomputedMessageSource.load(
+                    new DefaultResourceLoader(), "UTF-8", Locale.ROOT,
+                    RestHandlerExceptionResolverBuilder.DEFAULT_MESSAGES_BASENAME, COMMON_MESSAGES_BASENAME, getBaseName()
+            );
+        }
         ReloadableResourceBundleMessageSource common = new ReloadableResourceBundleMessageSource();
-        common.setBasename("classpath:/io/barracks/commons/configuration/messages");
+        common.setBasename(COMMON_MESSAGES_BASENAME);
         common.setFallbackToSystemLocale(false);
         common.setDefaultEncoding("UTF-8");
         String baseName = getBaseName();
@@ -81,6 +106,37 @@ public abstract class ExceptionHandlingConfiguration extends WebMvcConfigurerAda
         return null;
     }
 
+    /**
+     * Whether the error messages are loaded once at startup into a flat map instead of reloadable resource bundles.
+     * Locale specific bundles are then ignored.
+     */
+    protected boolean isPrecomputedMessageSource() {
+        return false;
+    }
+
+    protected ObjectMapper getErrorObjectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * Whether Afterburner is registered for the error messages, on a copy of {@link #getErrorObjectMapper()}.
+     */
+    protected boolean isAfterburnerEnabled() {
+        return false;
+    }
+
+    protected int getMaxErrorPayloadTemplates() {
+        return ErrorPayloadTemplateCache.DEFAULT_MAX_SIZE;
+    }
+
+    protected int getMaxErrorBodySize() {
+        return DefaultServiceClientExceptionHandler.DEFAULT_MAX_BODY_SIZE;
+    }
+
+    protected Set<String> getErrorExtensionProperties() {
+        return DefaultServiceClientExceptionHandler.DEFAULT_EXTENSION_PROPERTIES;
+    }
+
     @Bean
     public ExceptionHandlerExceptionResolver exceptionHandlerExceptionResolver() {
         ExceptionHandlerExceptionResolver resolver = new ExceptionHandlerExceptionResolver();
@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import org.springframework.context.HierarchicalMessageSource;
+import org.springframework.context.MessageSource;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.ObjectUtils;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A {@link MessageSource} resolving every message from one immutable map built at startup.
+ * <p>
+ * Locales are ignored: only the base bundles are loaded, later basenames overriding earlier ones, and the patterns are
+ * compiled once with the format locale. Messages without arguments are returned as is, like Spring's message sources
+ * do by default.
+ */
+public class PrecomputedMessageSource implements HierarchicalMessageSource {
+
+    private static final String PROPERTIES_SUFFIX = ".properties";
+
+    private final Map<String, Message> messages;
+    private final Locale formatLocale;
+    private volatile MessageSource parentMessageSource;
+
+    public PrecomputedMessageSource(Map<String, String> messages, Locale formatLocale) {
+        final Map<String, Message> compiled = new HashMap<>(messages.size() * 2);
+        for (Map.Entry<String, String> entry : messages.entrySet()) {
+            compiled.put(entry.getKey(), new Message(entry.getValue(), formatLocale));
+        }
+        this.messages = Collections.unmodifiableMap(compiled);
+        this.formatLocale = formatLocale;
+    }
+
+    /**
+     * Loads the {@code .properties} file of each basename, ignoring the missing ones. Messages of later basenames
+     * override those of earlier ones.
+     */
+    public static PrecomputedMessageSource load(ResourceLoader resourceLoader, String encoding, Locale formatLocale, String... basenames) {
+        final Map<String, String> messages = new LinkedHashMap<>();
+        for (String basename : basenames) {
+            if (basename == null) {
+                continue;
+            }
+            final Resource resource = resourceLoader.getResource(basename + PROPERTIES_SUFFIX);
+            if (!resource.exists()) {
+                continue;
+            }
+            final Properties properties = new Properties();
+            try {
+                PropertiesLoaderUtils.fillProperties(properties, new EncodedResource(resource, encoding));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to load messages from " + resource.getDescription(), e);
+            }
+            for (String code : properties.stringPropertyNames()) {
+                messages.put(code, properties.getProperty(code));
+            }
+        }
+        return new PrecomputedMessageSource(messages, formatLocale);
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    @Override
+    public MessageSource getParentMessageSource() {
+        return parentMessageSource;
+    }
+
+    @Override
+    public void setParentMessageSource(MessageSource parent) {
+        this.parentMessageSource = parent;
+    }
+
+    @Override
+    public String getMessage(String code, Object[] args, String defaultMessage, Locale locale) {
+        final Message message = messages.get(code);
+        if (message != null) {
+            return message.render(resolveArguments(args, locale));
+        }
+        final MessageSource parent = parentMessageSource;
+        if (parent != null) {
+            return parent.getMessage(code, args, defaultMessage, locale);
+        }
+        return renderDefaultMessage(defaultMessage, args, locale);
+    }
+
+    @Override
+    public String getMessage(String code, Object[] args, Locale locale) {
+        final String message = getMessage(code, args, null, locale);
+        if (message == null) {
+            throw new NoSuchMessageException(code, locale);
+        }
+        return message;
+    }
+
+    @Override
+    public String getMessage(MessageSourceResolvable resolvable, Locale locale) {
+        final String[] codes = resolvable.getCodes();
+        if (codes != null) {
+            for (String code : codes) {
+                final String message = getMessage(code, resolvable.getArguments(), null, locale);
+                if (message != null) {
+                    return message;
+                }
+            }
+        }
+        final String message = renderDefaultMessage(resolvable.getDefaultMessage(), resolvable.getArguments(), locale);
+        if (message == null) {
+            throw new NoSuchMessageException(codes != null && codes.length > 0 ? codes[codes.length - 1] : null, locale);
+        }
+        return message;
+    }
+
+    private String renderDefaultMessage(String defaultMessage, Object[] args, Locale locale) {
+        if (defaultMessage == null || ObjectUtils.isEmpty(args)) {
+            return defaultMessage;
+        }
+        return new MessageFormat(defaultMessage, formatLocale).format(resolveArguments(args, locale));
+    }
+
+    private Object[] resolveArguments(Object[] args, Locale locale) {
+        if (ObjectUtils.isEmpty(args)) {
+            return args;
+        }
+        Object[] resolved = args;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof MessageSourceResolvable) {
+                if (resolved == args) {
+                    resolved = args.clone();
+                }
+                resolved[i] = getMessage((MessageSourceResolvable) args[i], locale);
+            }
+        }
+        return resolved;
+    }
+
+    private static final class Message {
+        private final String text;
+        private final MessageFormat format;
+
+        Message(String text, Locale locale) {
+            this.text = text;
+            this.format = compile(text, locale);
+        }
+
+        String render(Object[] args) {
+            if (ObjectUtils.isEmpty(args) || format == null) {
+                return text;
+            }
+            // MessageFormat is not thread-safe; Spring's message sources synchronize on it the same way.
+            synchronized (format) {
+                return format.format(args);
+            }
+        }
+
+        private static MessageFormat compile(String text, Locale locale) {
+            try {
+                return new MessageFormat(text, locale);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import cz.jirutka.spring.exhandler.messages.ErrorMessage;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+/**
+ * An {@link ErrorMessage} carrying its JSON serialization, written as is by the {@link ErrorMessageCodec} converter.
+ * Other converters still see a regular error message, hence the JAXB mapping of {@link ErrorMessage} is repeated here.
+ */
+@XmlRootElement(name = "problem")
+class PrerenderedErrorMessage extends ErrorMessage {
+
+    private static final long serialVersionUID = 1L;
+
+    @XmlTransient
+    private final byte[] prefix;
+    @XmlTransient
+    private final byte[] instance;
+    @XmlTransient
+    private final byte[] suffix;
+
+    @SuppressWarnings("unused") // Required by JAXB
+    private PrerenderedErrorMessage() {
+        this.prefix = null;
+        this.instance = null;
+        this.suffix = null;
+    }
+
+    PrerenderedErrorMessage(ErrorMessage template, String instance, byte[] prefix, byte[] escapedInstance, byte[] suffix) {
+        super(template);
+        if (instance != null) {
+            setInstance(URI.create(instance));
+        }
+        this.prefix = prefix;
+        this.instance = escapedInstance;
+        this.suffix = suffix;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(prefix);
+        out.write(instance);
+        out.write(suffix);
+    }
+}
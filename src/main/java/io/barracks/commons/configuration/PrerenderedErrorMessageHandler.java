@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import cz.jirutka.spring.exhandler.handlers.ErrorMessageRestExceptionHandler;
+import cz.jirutka.spring.exhandler.messages.ErrorMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpStatus;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * An {@link ErrorMessageRestExceptionHandler} serving pre-serialized payloads from an {@link ErrorPayloadTemplateCache}.
+ * <p>
+ * A payload is cached only when its type, title and detail messages are not interpolated. An interpolated instance is
+ * still resolved for each error and spliced into the cached payload.
+ */
+public class PrerenderedErrorMessageHandler<E extends Exception> extends ErrorMessageRestExceptionHandler<E> {
+
+    private final Logger logger = LoggerFactory.getLogger(PrerenderedErrorMessageHandler.class);
+    private final ErrorMessageCodec codec;
+    private final ErrorPayloadTemplateCache cache;
+
+    public PrerenderedErrorMessageHandler(Class<E> exceptionClass, HttpStatus status, ErrorMessageCodec codec, ErrorPayloadTemplateCache cache) {
+        super(exceptionClass, status);
+        this.codec = codec;
+        this.cache = cache;
+    }
+
+    @Override
+    public ErrorMessage createBody(E ex, HttpServletRequest req) {
+        final Locale locale = LocaleContextHolder.getLocale();
+        final ErrorPayloadTemplate template = cache.get(getExceptionClass(), getStatus(), locale, () -> createTemplate(ex, req, locale));
+        if (!template.isCacheable()) {
+            return super.createBody(ex, req);
+        }
+        return template.render(template.hasDynamicInstance() ? resolveMessage(INSTANCE_KEY, ex, req) : null);
+    }
+
+    private ErrorPayloadTemplate createTemplate(E ex, HttpServletRequest req, Locale locale) {
+        if (isInterpolated(TYPE_KEY, locale) || isInterpolated(TITLE_KEY, locale) || isInterpolated(DETAIL_KEY, locale)) {
+            return ErrorPayloadTemplate.NOT_CACHEABLE;
+        }
+        final ErrorMessage message = super.createBody(ex, req);
+        try {
+            return isInterpolated(INSTANCE_KEY, locale)
+                    ? ErrorPayloadTemplate.ofDynamicInstance(codec, message)
+                    : ErrorPayloadTemplate.ofStaticMessage(codec, message);
+        } catch (IOException e) {
+            logger.warn("Failed to pre-render the error message of {}", getExceptionClass().getName(), e);
+            return ErrorPayloadTemplate.NOT_CACHEABLE;
+        }
+    }
+
+    private boolean isInterpolated(String key, Locale locale) {
+        final String message = getMessage(key, locale);
+        return message != null && (message.contains("#{") || message.contains("${"));
+    }
+}
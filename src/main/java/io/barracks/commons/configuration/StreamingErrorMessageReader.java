@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads an {@link ExtendedErrorMessage} straight from a raw response body with a streaming parser.
+ * <p>
+ * Bodies larger than {@code maxBodySize} or not starting with a JSON object are rejected without being parsed. Only
+ * the whitelisted extension properties are kept as trees, the other unknown properties are skipped.
+ */
+class StreamingErrorMessageReader {
+
+    private static final Set<String> STANDARD_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "type", "title", "status", "detail", "instance"
+    )));
+
+    private final ObjectMapper mapper;
+    private final JsonFactory factory;
+    private final int maxBodySize;
+    private final Set<String> extensionProperties;
+
+    StreamingErrorMessageReader(ObjectMapper mapper, int maxBodySize, Set<String> extensionProperties) {
+        this.mapper = mapper;
+        this.factory = mapper.getFactory();
+        this.maxBodySize = maxBodySize;
+        this.extensionProperties = Collections.unmodifiableSet(new HashSet<>(extensionProperties));
+    }
+
+    int getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    boolean isCandidate(byte[] body) {
+        if (body == null || body.length > maxBodySize) {
+            return false;
+        }
+        for (byte b : body) {
+            if (b == '{') {
+                return true;
+            }
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    ExtendedErrorMessage read(byte[] body) throws IOException {
+        try (JsonParser parser = factory.createParser(body)) {
+            parser.setCodec(mapper);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Error body is not a JSON object");
+            }
+            final ExtendedErrorMessage message = new ExtendedErrorMessage();
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                if (STANDARD_PROPERTIES.contains(name) && !value.isScalarValue()) {
+                    throw new IOException("Invalid " + name + " in error body, expected a scalar value");
+                }
+                switch (name) {
+                    case "type":
+                        message.setType(toUri(parser.getValueAsString()));
+                        break;
+                    case "title":
+                        message.setTitle(parser.getValueAsString());
+                        break;
+                    case "status":
+                        message.setStatus(toStatus(parser, value));
+                        break;
+                    case "detail":
+                        message.setDetail(parser.getValueAsString());
+                        break;
+                    case "instance":
+                        message.setInstance(toUri(parser.getValueAsString()));
+                        break;
+                    default:
+                        if (extensionProperties.contains(name)) {
+                            message.set(name, parser.<JsonNode>readValueAsTree());
+                        } else {
+                            parser.skipChildren();
+                        }
+                }
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new IOException("Error body is not a complete JSON object");
+            }
+            return message;
+        }
+    }
+
+    private static Integer toStatus(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        try {
+            return Integer.valueOf(parser.getValueAsString());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid status in error body", e);
+        }
+    }
+
+    private static URI toUri(String value) throws IOException {
+        try {
+            return value == null ? null : URI.create(value);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URI in error body", e);
+        }
+    }
+}
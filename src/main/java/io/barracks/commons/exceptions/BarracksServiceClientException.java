@@ -26,16 +26,28 @@ package io.barracks.commons.exceptions;
 
 import org.springframework.web.client.HttpStatusCodeException;
 
+/**
+ * Wraps an error returned by another service.
+ * <p>
+ * Subclasses can skip the stack trace capture, which is mostly noise for errors raised by a failing upstream and
+ * costly when many of them are thrown at once.
+ */
 public abstract class BarracksServiceClientException extends RuntimeException {
 
+    private final HttpStatusCodeException cause;
+
     public BarracksServiceClientException(HttpStatusCodeException cause) {
-        super(cause);
+        this(cause, true);
+    }
+
+    protected BarracksServiceClientException(HttpStatusCodeException cause, boolean writableStackTrace) {
+        super(cause == null ? null : cause.toString(), cause, true, writableStackTrace);
+        this.cause = cause;
     }
 
     @Override
-    public synchronized HttpStatusCodeException getCause() {
-        return (HttpStatusCodeException) super.getCause();
+    public HttpStatusCodeException getCause() {
+        return cause;
     }
 
 }
-
@@ -31,9 +31,22 @@ import org.aspectj.lang.annotation.Aspect;
 @Aspect
 public class ManagerMonitor extends Monitor {
 
+    public ManagerMonitor() {
+        super();
+    }
+
+    public ManagerMonitor(MonitorMode mode) {
+        super(mode);
+    }
+
     @Around("execution(* io.barracks..manager..*(..))")
     public Object logMethodCall(ProceedingJoinPoint joinPoint) throws Throwable {
         return super.logMethodCall(joinPoint);
     }
 
+    @Override
+    protected String getLayer() {
+        return "manager";
+    }
+
 }
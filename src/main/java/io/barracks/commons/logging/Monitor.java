@@ -24,41 +24,162 @@
 
 package io.barracks.commons.logging;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.StopWatch;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 public abstract class Monitor {
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final ConcurrentMap<Object, MethodMetrics> methodMetrics = new ConcurrentHashMap<>();
+    private volatile MonitorMode mode;
+    private volatile MetricRegistry metricRegistry;
+
+    protected Monitor() {
+        this(MonitorMode.FULL);
+    }
+
+    protected Monitor(MonitorMode mode) {
+        setMode(mode);
+    }
+
+    public MonitorMode getMode() {
+        return mode;
+    }
+
+    public void setMode(MonitorMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Monitor mode must not be null");
+        }
+        this.mode = mode;
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.methodMetrics.clear();
+    }
+
+    /**
+     * @return the first element of the metric names recorded by this monitor, e.g. "manager" in
+     * "manager.DeviceManager.getDevice".
+     */
+    protected String getLayer() {
+        return getClass().getSimpleName();
+    }
 
     public Object logMethodCall(ProceedingJoinPoint joinPoint) throws Throwable {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
+        final MonitorMode mode = this.mode;
+        if (mode == MonitorMode.OFF) {
+            return joinPoint.proceed();
+        }
+        final long start = System.nanoTime();
+        final Object returnedValue;
         try {
-            Object returnedValue = joinPoint.proceed();
-            stopWatch.stop();
+            returnedValue = joinPoint.proceed();
+        } catch (Throwable e) {
+            final long elapsed = System.nanoTime() - start;
+            final MethodMetrics metrics = getMethodMetrics(joinPoint);
+            if (metrics != null) {
+                metrics.timer.update(elapsed, TimeUnit.NANOSECONDS);
+                metrics.errors.mark();
+            }
+            if (logger.isWarnEnabled()) {
+                logThrow(joinPoint, mode, e, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+            throw e;
+        }
+        final MethodMetrics metrics = getMethodMetrics(joinPoint);
+        if (metrics != null || logger.isDebugEnabled()) {
+            final long elapsed = System.nanoTime() - start;
+            if (metrics != null) {
+                metrics.timer.update(elapsed, TimeUnit.NANOSECONDS);
+            }
+            if (logger.isDebugEnabled()) {
+                logReturn(joinPoint, mode, returnedValue, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+        return returnedValue;
+    }
+
+    private MethodMetrics getMethodMetrics(ProceedingJoinPoint joinPoint) {
+        final MetricRegistry metricRegistry = this.metricRegistry;
+        if (metricRegistry == null) {
+            return null;
+        }
+        final Signature signature = joinPoint.getSignature();
+        // Spring AOP creates a new Signature for each call, the Method it wraps is stable
+        final Object key = signature instanceof MethodSignature ? ((MethodSignature) signature).getMethod() : signature;
+        final MethodMetrics metrics = methodMetrics.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+        return methodMetrics.computeIfAbsent(key, k -> new MethodMetrics(metricRegistry, getLayer(), signature));
+    }
+
+    private void logReturn(ProceedingJoinPoint joinPoint, MonitorMode mode, Object returnedValue, long elapsed) {
+        if (mode == MonitorMode.FULL) {
             logger.debug(
                     "{}.{}({}) returned {} in {} ms",
                     joinPoint.getTarget().getClass(),
                     joinPoint.getSignature().getName(),
                     joinPoint.getArgs(),
                     returnedValue,
-                    stopWatch.getTotalTimeMillis()
+                    elapsed
             );
-            return returnedValue;
-        } catch(Throwable e) {
-            stopWatch.stop();
+        } else {
+            logger.debug(
+                    "{}.{} returned in {} ms",
+                    joinPoint.getSignature().getDeclaringTypeName(),
+                    joinPoint.getSignature().getName(),
+                    elapsed
+            );
+        }
+    }
+
+    private void logThrow(ProceedingJoinPoint joinPoint, MonitorMode mode, Throwable e, long elapsed) {
+        if (mode == MonitorMode.FULL) {
             logger.warn(
                     "{}.{}({}) thrown {} in {} ms",
                     joinPoint.getTarget().getClass(),
                     joinPoint.getSignature().getName(),
                     joinPoint.getArgs(),
                     e,
-                    stopWatch.getTotalTimeMillis()
+                    elapsed
             );
-            throw e;
+        } else {
+            logger.warn(
+                    "{}.{} thrown {} in {} ms",
+                    joinPoint.getSignature().getDeclaringTypeName(),
+                    joinPoint.getSignature().getName(),
+                    e,
+                    elapsed
+            );
+        }
+    }
+
+    private static final class MethodMetrics {
+        private final Timer timer;
+        private final Meter errors;
+
+        private MethodMetrics(MetricRegistry metricRegistry, String layer, Signature signature) {
+            final String name = MetricRegistry.name(layer, signature.getDeclaringType().getSimpleName(), signature.getName());
+            this.timer = metricRegistry.timer(name);
+            this.errors = metricRegistry.meter(MetricRegistry.name(name, "errors"));
         }
     }
 
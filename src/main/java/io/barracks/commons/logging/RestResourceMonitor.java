@@ -31,9 +31,22 @@ import org.aspectj.lang.annotation.Aspect;
 @Aspect
 public class RestResourceMonitor extends Monitor {
 
+    public RestResourceMonitor() {
+        super();
+    }
+
+    public RestResourceMonitor(MonitorMode mode) {
+        super(mode);
+    }
+
     @Around("execution(* io.barracks..rest..*(..))")
     public Object logMethodCall(ProceedingJoinPoint joinPoint) throws Throwable {
         return super.logMethodCall(joinPoint);
     }
 
+    @Override
+    protected String getLayer() {
+        return "rest";
+    }
+
 }
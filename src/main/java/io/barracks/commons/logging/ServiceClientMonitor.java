@@ -31,9 +31,22 @@ import org.aspectj.lang.annotation.Aspect;
 @Aspect
 public class ServiceClientMonitor extends Monitor {
 
+    public ServiceClientMonitor() {
+        super();
+    }
+
+    public ServiceClientMonitor(MonitorMode mode) {
+        super(mode);
+    }
+
     @Around("execution(* io.barracks..client..*(..))")
     public Object logMethodCall(ProceedingJoinPoint joinPoint) throws Throwable {
         return super.logMethodCall(joinPoint);
     }
 
+    @Override
+    protected String getLayer() {
+        return "client";
+    }
+
 }
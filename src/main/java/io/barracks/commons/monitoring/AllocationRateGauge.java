@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Clock;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes allocated per second since the previous sample, sampled at most once per interval so that every reporter
+ * reads the same rate.
+ * <p>
+ * The allocations are tracked per thread: threads started since the previous sample count for all their allocations
+ * and dead threads are forgotten, so thread churn does not hide the allocations of the other threads. Only the
+ * allocations of threads which died since the previous sample are lost.
+ */
+class AllocationRateGauge extends CachedGauge<Double> {
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final Clock clock;
+    private Map<Long, Long> lastAllocatedBytes;
+    private long lastSampleAt;
+
+    AllocationRateGauge(long interval, TimeUnit unit) {
+        this((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean(), Clock.defaultClock(), interval, unit);
+    }
+
+    AllocationRateGauge(com.sun.management.ThreadMXBean threads, Clock clock, long interval, TimeUnit unit) {
+        super(clock, interval, unit);
+        this.threads = threads;
+        this.clock = clock;
+        this.lastAllocatedBytes = getAllocatedBytes();
+        this.lastSampleAt = clock.getTick();
+    }
+
+    static boolean isSupported() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+    }
+
+    @Override
+    protected synchronized Double loadValue() {
+        final Map<Long, Long> allocatedBytes = getAllocatedBytes();
+        final long now = clock.getTick();
+        long allocated = 0;
+        for (Map.Entry<Long, Long> entry : allocatedBytes.entrySet()) {
+            final Long last = lastAllocatedBytes.get(entry.getKey());
+            allocated += last == null ? entry.getValue() : Math.max(0, entry.getValue() - last);
+        }
+        final long elapsed = now - lastSampleAt;
+        lastAllocatedBytes = allocatedBytes;
+        lastSampleAt = now;
+        return elapsed <= 0 ? 0 : allocated * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    private Map<Long, Long> getAllocatedBytes() {
+        final long[] ids = threads.getAllThreadIds();
+        final long[] bytes = threads.getThreadAllocatedBytes(ids);
+        final Map<Long, Long> allocatedBytes = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                allocatedBytes.put(ids[i], bytes[i]);
+            }
+        }
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.graphite.GraphiteSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decouples the reporter thread from the Graphite connection.
+ * <p>
+ * Values are pushed to a bounded queue which is drained in batches by a background worker. When the queue is full the
+ * oldest value is dropped, so a slow or unreachable relay never stalls reporting. Sent and dropped values, send
+ * failures and queueing latency are exposed as metrics.
+ */
+public class AsyncGraphiteSender implements GraphiteSender, MetricSet {
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final Logger logger = LoggerFactory.getLogger(AsyncGraphiteSender.class);
+    private final GraphiteSender delegate;
+    private final BlockingQueue<DataPoint> queue;
+    private final int batchSize;
+    private final CountDownLatch closing = new CountDownLatch(1);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Counter sent = new Counter();
+    private final Counter dropped = new Counter();
+    private final Timer latency = new Timer();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public AsyncGraphiteSender(GraphiteSender delegate, int capacity, int batchSize) {
+        this(delegate, capacity, batchSize, task -> {
+            final Thread thread = new Thread(task, "graphite-sender");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    public AsyncGraphiteSender(GraphiteSender delegate, int capacity, int batchSize, Executor executor) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        executor.execute(this::run);
+    }
+
+    @Override
+    public void connect() {
+        // The worker manages the connection
+    }
+
+    @Override
+    public void send(String name, String value, long timestamp) {
+        if (!isConnected()) {
+            dropped.inc();
+            return;
+        }
+        final DataPoint dataPoint = new DataPoint(name, value, timestamp, System.nanoTime());
+        while (!queue.offer(dataPoint)) {
+            if (queue.poll() != null) {
+                dropped.inc();
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        // The worker flushes after each batch
+    }
+
+    @Override
+    public boolean isConnected() {
+        return closing.getCount() != 0;
+    }
+
+    @Override
+    public int getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() {
+        closing.countDown();
+        try {
+            if (!stopped.await(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                logger.warn("Graphite sender did not stop within {} ms", CLOSE_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> metrics = new HashMap<>();
+        metrics.put("sent", sent);
+        metrics.put("dropped", dropped);
+        metrics.put("latency", latency);
+        metrics.put("failures", (Gauge<Integer>) this::getFailures);
+        metrics.put("queue-size", (Gauge<Integer>) queue::size);
+        return metrics;
+    }
+
+    public long getSentCount() {
+        return sent.getCount();
+    }
+
+    public long getDroppedCount() {
+        return dropped.getCount();
+    }
+
+    public Timer getLatency() {
+        return latency;
+    }
+
+    private void run() {
+        final List<DataPoint> batch = new ArrayList<>(batchSize);
+        try {
+            while (isConnected() || !queue.isEmpty() || !batch.isEmpty()) {
+                if (batch.isEmpty()) {
+                    final DataPoint first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                if (sendBatch(batch)) {
+                    batch.clear();
+                } else if (isConnected()) {
+                    closing.await(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                } else {
+                    dropped.inc(batch.size() + queue.size());
+                    queue.clear();
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeDelegate();
+            stopped.countDown();
+        }
+    }
+
+    private boolean sendBatch(List<DataPoint> batch) {
+        try {
+            if (!delegate.isConnected()) {
+                delegate.connect();
+            }
+            for (DataPoint dataPoint : batch) {
+                delegate.send(dataPoint.name, dataPoint.value, dataPoint.timestamp);
+            }
+            delegate.flush();
+            latency.update(System.nanoTime() - batch.get(0).enqueuedAt, TimeUnit.NANOSECONDS);
+            sent.inc(batch.size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("Failed to send {} metrics to Graphite", batch.size(), e);
+            closeDelegate();
+            return false;
+        }
+    }
+
+    private void closeDelegate() {
+        try {
+            delegate.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close Graphite connection", e);
+        }
+    }
+
+    private static final class DataPoint {
+        private final String name;
+        private final String value;
+        private final long timestamp;
+        private final long enqueuedAt;
+
+        private DataPoint(String name, String value, long timestamp, long enqueuedAt) {
+            this.name = name;
+            this.value = value;
+            this.timestamp = timestamp;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
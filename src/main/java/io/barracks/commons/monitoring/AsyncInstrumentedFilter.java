@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Same metrics as Dropwizard's {@link com.codahale.metrics.servlet.InstrumentedFilter}, but requests going async are
+ * timed until the {@link javax.servlet.AsyncContext} completes rather than until the servlet thread is released.
+ * <p>
+ * In-flight async requests are counted in {@code asyncRequests}, timed out and failed ones are marked in
+ * {@code timeouts} and {@code errors}.
+ */
+public class AsyncInstrumentedFilter implements Filter {
+
+    private static final String RESPONSE_CODES = "responseCodes";
+
+    private final Timer requests;
+    private final Counter activeRequests;
+    private final Counter asyncRequests;
+    private final Meter timeouts;
+    private final Meter errors;
+    private final Meter ok;
+    private final Meter created;
+    private final Meter noContent;
+    private final Meter badRequest;
+    private final Meter notFound;
+    private final Meter serverError;
+    private final Meter other;
+
+    public AsyncInstrumentedFilter(MetricRegistry registry, String prefix) {
+        this.requests = registry.timer(MetricRegistry.name(prefix, "requests"));
+        this.activeRequests = registry.counter(MetricRegistry.name(prefix, "activeRequests"));
+        this.asyncRequests = registry.counter(MetricRegistry.name(prefix, "asyncRequests"));
+        this.timeouts = registry.meter(MetricRegistry.name(prefix, "timeouts"));
+        this.errors = registry.meter(MetricRegistry.name(prefix, "errors"));
+        this.ok = registry.meter(MetricRegistry.name(prefix, RESPONSE_CODES, "ok"));
+        this.created = registry.meter(MetricRegistry.name(prefix, RESPONSE_CODES, "created"));
+        this.noContent = registry.meter(MetricRegistry.name(prefix, RESPONSE_CODES, "noContent"));
+        this.badRequest = registry.meter(MetricRegistry.name(prefix, RESPONSE_CODES, "badRequest"));
+        this.notFound = registry.meter(MetricRegistry.name(prefix, RESPONSE_CODES, "notFound"));
+        this.serverError = registry.meter(MetricRegistry.name(prefix, RESPONSE_CODES, "serverError"));
+        this.other = registry.meter(MetricRegistry.name(prefix, RESPONSE_CODES, "other"));
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        // Metrics are created in the constructor
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final HttpServletResponse httpResponse = (HttpServletResponse) response;
+        activeRequests.inc();
+        final Timer.Context context = requests.time();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                asyncRequests.inc();
+                request.getAsyncContext().addListener(new AsyncTimingListener(context, httpResponse));
+            } else {
+                finish(context, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : httpResponse.getStatus());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to release
+    }
+
+    private void finish(Timer.Context context, int status) {
+        context.stop();
+        activeRequests.dec();
+        markStatus(status);
+    }
+
+    private void markStatus(int status) {
+        switch (status) {
+            case HttpServletResponse.SC_OK:
+                ok.mark();
+                break;
+            case HttpServletResponse.SC_CREATED:
+                created.mark();
+                break;
+            case HttpServletResponse.SC_NO_CONTENT:
+                noContent.mark();
+                break;
+            case HttpServletResponse.SC_BAD_REQUEST:
+                badRequest.mark();
+                break;
+            case HttpServletResponse.SC_NOT_FOUND:
+                notFound.mark();
+                break;
+            case HttpServletResponse.SC_INTERNAL_SERVER_ERROR:
+                serverError.mark();
+                break;
+            default:
+                other.mark();
+        }
+    }
+
+    private final class AsyncTimingListener implements AsyncListener {
+        private final Timer.Context context;
+        private final HttpServletResponse response;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private AsyncTimingListener(Timer.Context context, HttpServletResponse response) {
+            this.context = context;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (done.compareAndSet(false, true)) {
+                asyncRequests.dec();
+                finish(context, response.getStatus());
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            timeouts.mark();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            errors.mark();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
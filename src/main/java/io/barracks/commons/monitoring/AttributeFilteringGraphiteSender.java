@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.graphite.GraphiteSender;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Drops the disabled attributes of histograms, meters and timers before they reach the Graphite sender. Gauges and
+ * counters are always sent.
+ */
+public class AttributeFilteringGraphiteSender implements GraphiteSender {
+
+    private final GraphiteSender delegate;
+    private final MetricRegistry registry;
+    private final String prefix;
+    private final Map<String, MetricAttribute> disabledAttributes = new HashMap<>();
+    private final ConcurrentMap<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+    public AttributeFilteringGraphiteSender(GraphiteSender delegate, MetricRegistry registry, String prefix, Set<MetricAttribute> disabledAttributes) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.prefix = prefix == null || prefix.isEmpty() ? "" : prefix + ".";
+        for (MetricAttribute attribute : disabledAttributes) {
+            this.disabledAttributes.put(attribute.getCode(), attribute);
+        }
+    }
+
+    @Override
+    public void connect() throws IOException {
+        delegate.connect();
+    }
+
+    @Override
+    public void send(String name, String value, long timestamp) throws IOException {
+        if (decisions.computeIfAbsent(name, this::isEnabled)) {
+            delegate.send(name, value, timestamp);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public int getFailures() {
+        return delegate.getFailures();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private Boolean isEnabled(String name) {
+        final int separator = name.lastIndexOf('.');
+        if (separator < prefix.length() || !name.startsWith(prefix)
+                || !disabledAttributes.containsKey(name.substring(separator + 1))) {
+            return Boolean.TRUE;
+        }
+        final Metric metric = registry.getMetrics().get(name.substring(prefix.length(), separator));
+        return metric == null || metric instanceof Gauge || metric instanceof Counter;
+    }
+}
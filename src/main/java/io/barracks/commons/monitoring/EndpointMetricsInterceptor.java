@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Times every request handled by Spring MVC in a timer per HTTP method, handler pattern and status class, e.g.
+ * {@code web.endpoints.GET.devices_~id~.2xx} for {@code GET /devices/{id}} answered with a 200.
+ * <p>
+ * Using the handler pattern rather than the URI keeps the number of timers bounded. Timers are cached per pattern so
+ * that a request only costs a map lookup.
+ * <p>
+ * Distinct patterns get distinct timers: in the pattern, {@code /} becomes {@code _}, a variable becomes its name
+ * between {@code ~} (its regex is ignored) and the other characters which would be ambiguous or not Graphite friendly
+ * are escaped with {@code -}: {@code --} for {@code -}, {@code -_} for {@code _}, {@code -~} for {@code ~},
+ * {@code -d} for {@code .}, {@code -s} for {@code *} and {@code -w} for a whitespace. The root pattern becomes
+ * {@code _}.
+ */
+public class EndpointMetricsInterceptor extends HandlerInterceptorAdapter {
+
+    public static final String DEFAULT_PREFIX = "web.endpoints";
+
+    private static final String START_ATTRIBUTE = EndpointMetricsInterceptor.class.getName() + ".start";
+    private static final String UNMAPPED = "unmapped";
+    private static final String OTHER_METHOD = "OTHER";
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final int STATUS_CLASSES = 6;
+
+    private final MetricRegistry registry;
+    private final String prefix;
+    private final ConcurrentMap<String, EndpointTimers> endpoints = new ConcurrentHashMap<>();
+
+    public EndpointMetricsInterceptor(MetricRegistry registry) {
+        this(registry, DEFAULT_PREFIX);
+    }
+
+    public EndpointMetricsInterceptor(MetricRegistry registry, String prefix) {
+        this.registry = registry;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The error page dispatch of a failed request was already timed by the original dispatch
+        if (request.getDispatcherType() == DispatcherType.ERROR) {
+            return true;
+        }
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getDispatcherType() == DispatcherType.ERROR) {
+            return;
+        }
+        final Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long)) {
+            return;
+        }
+        request.removeAttribute(START_ATTRIBUTE);
+        int status = response.getStatus();
+        if (ex != null && status < 400) {
+            status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+        getTimer(request.getMethod(), (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), status)
+                .update(System.nanoTime() - (Long) start, TimeUnit.NANOSECONDS);
+    }
+
+    Timer getTimer(String method, String pattern, int status) {
+        final String key = pattern == null ? UNMAPPED : pattern;
+        EndpointTimers timers = endpoints.get(key);
+        if (timers == null) {
+            timers = endpoints.computeIfAbsent(key, EndpointTimers::new);
+        }
+        return timers.get(HttpMethod.resolve(method), status);
+    }
+
+    static String sanitize(String pattern) {
+        final StringBuilder name = new StringBuilder(pattern.length() + 8);
+        boolean inVariable = false;
+        boolean inVariableRegex = false;
+        int regexBraces = 0;
+        for (int i = pattern.startsWith("/") ? 1 : 0; i < pattern.length(); i++) {
+            final char c = pattern.charAt(i);
+            if (inVariableRegex && c == '{') {
+                regexBraces++;
+            } else if (inVariableRegex && c == '}' && regexBraces > 0) {
+                regexBraces--;
+            } else if (c == '{' && !inVariable) {
+                inVariable = true;
+                name.append('~');
+            } else if (c == '}' && inVariable) {
+                inVariable = false;
+                inVariableRegex = false;
+                name.append('~');
+            } else if (inVariableRegex) {
+                continue;
+            } else if (inVariable && c == ':') {
+                inVariableRegex = true;
+            } else if (c == '/') {
+                name.append('_');
+            } else if (c == '-' || c == '_' || c == '~') {
+                name.append('-').append(c);
+            } else if (c == '.') {
+                name.append("-d");
+            } else if (c == '*') {
+                name.append("-s");
+            } else if (Character.isWhitespace(c)) {
+                name.append("-w");
+            } else {
+                name.append(c);
+            }
+        }
+        return name.length() == 0 ? "_" : name.toString();
+    }
+
+    private final class EndpointTimers {
+        private final String name;
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>((METHODS.length + 1) * STATUS_CLASSES);
+
+        private EndpointTimers(String pattern) {
+            this.name = sanitize(pattern);
+        }
+
+        private Timer get(HttpMethod method, int status) {
+            final int methodIndex = method == null ? METHODS.length : method.ordinal();
+            final int statusClass = status >= 100 && status < 600 ? status / 100 : 0;
+            final int index = methodIndex * STATUS_CLASSES + statusClass;
+            Timer timer = timers.get(index);
+            if (timer == null) {
+                final String methodName = method == null ? OTHER_METHOD : method.name();
+                final String statusName = statusClass == 0 ? "unknown" : statusClass + "xx";
+                timer = registry.timer(MetricRegistry.name(prefix, methodName, name, statusName));
+                timers.set(index, timer);
+            }
+            return timer;
+        }
+    }
+}
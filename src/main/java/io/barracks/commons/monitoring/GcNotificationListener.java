@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.Closeable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records every garbage collection reported by the JVM.
+ * <p>
+ * Pause durations (in milliseconds) go to a histogram per collector and cause, named
+ * {@code jvm.gc.pause.<collector>.<cause>}. Concurrent collectors (CMS, ZGC and Shenandoah cycles) report the length
+ * of a whole concurrent cycle rather than a stop-the-world pause, it goes to
+ * {@code jvm.gc.concurrent.<collector>.<cause>} instead. Bytes allocated in the young generation since the previous pause and bytes promoted to the old generation
+ * are recorded per pause in {@code jvm.gc.allocated} and {@code jvm.gc.promoted}, and summed in the {@code -bytes}
+ * counters. Metrics and pool names are resolved once, so a collection only costs map lookups.
+ */
+public class GcNotificationListener implements NotificationListener, Closeable {
+
+    private static final String PREFIX = "jvm.gc";
+
+    private final MetricRegistry registry;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, Histogram>> pauses = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, Histogram>> concurrentCycles = new ConcurrentHashMap<>();
+    private final List<String> youngPools = new ArrayList<>();
+    private final List<String> oldPools = new ArrayList<>();
+    private final Histogram allocated;
+    private final Histogram promoted;
+    private final Counter allocatedBytes;
+    private final Counter promotedBytes;
+    private long youngUsageAfterLastGc;
+
+    public GcNotificationListener(MetricRegistry registry) {
+        this.registry = registry;
+        this.allocated = registry.histogram(MetricRegistry.name(PREFIX, "allocated"));
+        this.promoted = registry.histogram(MetricRegistry.name(PREFIX, "promoted"));
+        this.allocatedBytes = registry.counter(MetricRegistry.name(PREFIX, "allocated-bytes"));
+        this.promotedBytes = registry.counter(MetricRegistry.name(PREFIX, "promoted-bytes"));
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            final String name = pool.getName();
+            if (name.endsWith("Eden Space")) {
+                youngPools.add(name);
+            } else if (name.endsWith("Old Gen") || name.endsWith("Tenured Gen")) {
+                oldPools.add(name);
+            }
+        }
+    }
+
+    public synchronized void start() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                final NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // Already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    @Override
+    public synchronized void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        final GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        final GcInfo gcInfo = info.getGcInfo();
+        if (isConcurrent(info.getGcName(), info.getGcAction())) {
+            getHistogram(concurrentCycles, "concurrent", info.getGcName(), info.getGcCause()).update(gcInfo.getDuration());
+            return;
+        }
+        getHistogram(pauses, "pause", info.getGcName(), info.getGcCause()).update(gcInfo.getDuration());
+
+        final Map<String, MemoryUsage> before = gcInfo.getMemoryUsageBeforeGc();
+        final Map<String, MemoryUsage> after = gcInfo.getMemoryUsageAfterGc();
+        final long youngBefore = sumUsed(before, youngPools);
+        final long allocatedSinceLastGc = Math.max(0, youngBefore - youngUsageAfterLastGc);
+        youngUsageAfterLastGc = sumUsed(after, youngPools);
+        allocated.update(allocatedSinceLastGc);
+        allocatedBytes.inc(allocatedSinceLastGc);
+
+        final long promotedByGc = Math.max(0, sumUsed(after, oldPools) - sumUsed(before, oldPools));
+        promoted.update(promotedByGc);
+        promotedBytes.inc(promotedByGc);
+    }
+
+    /**
+     * Tells whether a notification reports a concurrent cycle rather than a stop-the-world pause: CMS reports its whole
+     * cycle, ZGC and Shenandoah have dedicated cycle collectors. G1 only reports the pauses of its concurrent cycles
+     * (remark and cleanup), which are stop-the-world.
+     */
+    static boolean isConcurrent(String collector, String action) {
+        return "ConcurrentMarkSweep".equals(collector)
+                || collector.endsWith(" Cycles")
+                || "end of GC cycle".equals(action);
+    }
+
+    private Histogram getHistogram(ConcurrentMap<String, ConcurrentMap<String, Histogram>> histograms, String kind, String collector, String cause) {
+        ConcurrentMap<String, Histogram> byCause = histograms.get(collector);
+        if (byCause == null) {
+            byCause = histograms.computeIfAbsent(collector, key -> new ConcurrentHashMap<>());
+        }
+        Histogram histogram = byCause.get(cause);
+        if (histogram == null) {
+            histogram = byCause.computeIfAbsent(cause, key -> registry.histogram(MetricRegistry.name(PREFIX, kind, sanitize(collector), sanitize(key))));
+        }
+        return histogram;
+    }
+
+    private static long sumUsed(Map<String, MemoryUsage> usages, List<String> pools) {
+        long used = 0;
+        for (int i = 0; i < pools.size(); i++) {
+            final MemoryUsage usage = usages.get(pools.get(i));
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static String sanitize(String name) {
+        return name.trim().replace(' ', '-').replace('.', '_');
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A {@link Reservoir} backed by an HdrHistogram {@link Recorder}, updates are wait-free.
+ * <p>
+ * Snapshots do not reset the reservoir: each one drains the recorder into a ring of histograms covering the last
+ * {@code window}, so several reporters can read the same values. Values are assigned to the chunk of the snapshot that
+ * drains them, the window is therefore accurate to one chunk. Negative values are recorded as 0.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    public static final long DEFAULT_WINDOW_SECONDS = 60;
+    public static final int DEFAULT_CHUNKS = 6;
+
+    private final Recorder recorder;
+    private final LongAdder pending = new LongAdder();
+    private final int numberOfSignificantValueDigits;
+    private final Histogram[] chunks;
+    private final long[] chunkEpochs;
+    private final long chunkDuration;
+    private final Clock clock;
+    private Histogram recycled;
+
+    public HdrHistogramReservoir() {
+        this(2);
+    }
+
+    public HdrHistogramReservoir(int numberOfSignificantValueDigits) {
+        this(numberOfSignificantValueDigits, DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public HdrHistogramReservoir(int numberOfSignificantValueDigits, long window, TimeUnit windowUnit) {
+        this(numberOfSignificantValueDigits, window, windowUnit, DEFAULT_CHUNKS, Clock.defaultClock());
+    }
+
+    public HdrHistogramReservoir(int numberOfSignificantValueDigits, long window, TimeUnit windowUnit, int chunks, Clock clock) {
+        if (chunks < 1 || windowUnit.toNanos(window) < chunks) {
+            throw new IllegalArgumentException("Invalid window " + window + " " + windowUnit + " for " + chunks + " chunks");
+        }
+        this.recorder = new Recorder(numberOfSignificantValueDigits);
+        this.numberOfSignificantValueDigits = numberOfSignificantValueDigits;
+        this.chunks = new Histogram[chunks];
+        this.chunkEpochs = new long[chunks];
+        for (int i = 0; i < chunks; i++) {
+            this.chunks[i] = new Histogram(numberOfSignificantValueDigits);
+            this.chunkEpochs[i] = Long.MIN_VALUE;
+        }
+        this.chunkDuration = windowUnit.toNanos(window) / chunks;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized int size() {
+        final long epoch = drain();
+        long size = pending.sum();
+        for (int i = 0; i < chunks.length; i++) {
+            if (isLive(i, epoch)) {
+                size += chunks[i].getTotalCount();
+            }
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        recorder.recordValue(Math.max(0, value));
+        pending.increment();
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        final long epoch = drain();
+        final Histogram histogram = new Histogram(numberOfSignificantValueDigits);
+        for (int i = 0; i < chunks.length; i++) {
+            if (isLive(i, epoch)) {
+                histogram.add(chunks[i]);
+            }
+        }
+        return new HdrHistogramSnapshot(histogram);
+    }
+
+    /**
+     * Moves the values recorded since the last call into the current chunk, must be called with the lock held.
+     *
+     * @return the epoch of the current chunk.
+     */
+    private long drain() {
+        final long epoch = clock.getTick() / chunkDuration;
+        final int index = (int) Math.floorMod(epoch, (long) chunks.length);
+        if (chunkEpochs[index] != epoch) {
+            chunks[index].reset();
+            chunkEpochs[index] = epoch;
+        }
+        final Histogram interval = recorder.getIntervalHistogram(recycled);
+        pending.add(-interval.getTotalCount());
+        chunks[index].add(interval);
+        recycled = interval;
+        return epoch;
+    }
+
+    private boolean isLive(int index, long epoch) {
+        return chunkEpochs[index] != Long.MIN_VALUE && epoch - chunkEpochs[index] < chunks.length;
+    }
+
+    static final class HdrHistogramSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        HdrHistogramSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            return histogram.getValueAtPercentile(quantile * 100.0);
+        }
+
+        /**
+         * @return the distinct recorded values, each one representing a bucket of the histogram.
+         */
+        @Override
+        public long[] getValues() {
+            long[] values = new long[16];
+            int size = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = value.getValueIteratedTo();
+            }
+            return Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getTotalCount() < 2 ? 0 : histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
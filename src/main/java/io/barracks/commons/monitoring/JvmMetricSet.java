@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.jvm.BufferPoolMetricSet;
+import com.codahale.metrics.jvm.CachedThreadStatesGaugeSet;
+import com.codahale.metrics.jvm.ClassLoadingGaugeSet;
+import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
+import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JVM metrics reported by every service: memory, garbage collection, thread states and allocation rate (both
+ * sampled at most once per refresh interval), buffer pools, class loading and safepoints.
+ */
+public class JvmMetricSet implements MetricSet {
+
+    private final long threadStatesRefresh;
+    private final TimeUnit threadStatesRefreshUnit;
+
+    public JvmMetricSet(long threadStatesRefresh, TimeUnit threadStatesRefreshUnit) {
+        this.threadStatesRefresh = threadStatesRefresh;
+        this.threadStatesRefreshUnit = threadStatesRefreshUnit;
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> metrics = new HashMap<>();
+        metrics.put("memory", new MemoryUsageGaugeSet());
+        metrics.put("garbage-collector", new GarbageCollectorMetricSet());
+        metrics.put("thread-states", new CachedThreadStatesGaugeSet(threadStatesRefresh, threadStatesRefreshUnit));
+        metrics.put("buffers", new BufferPoolMetricSet(ManagementFactory.getPlatformMBeanServer()));
+        metrics.put("classloader", new ClassLoadingGaugeSet());
+        metrics.put("safepoint", new SafepointGaugeSet());
+        if (AllocationRateGauge.isSupported()) {
+            metrics.put("allocation-rate", new AllocationRateGauge(threadStatesRefresh, threadStatesRefreshUnit));
+        }
+        return Collections.unmodifiableMap(metrics);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import io.barracks.commons.util.PublicAddressResolver;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class MetricsPrefixResolver {
+
+    public static final String PUBLIC_ADDRESS = "{publicAddress}";
+    public static final String UUID_PLACEHOLDER = "{uuid}";
+    public static final String HOSTNAME = "{hostname}";
+    public static final String PID = "{pid}";
+    public static final String CONTAINER_ID = "{containerId}";
+
+    static final String UNKNOWN = "unknown";
+
+    private static final Path CGROUP_FILE = Paths.get("/proc/self/cgroup");
+    private static final Pattern CONTAINER_ID_PATTERN = Pattern.compile("([0-9a-f]{64})(?:\\.scope)?$");
+
+    private final PublicAddressResolver publicAddressResolver;
+
+    public MetricsPrefixResolver(PublicAddressResolver publicAddressResolver) {
+        this.publicAddressResolver = publicAddressResolver;
+    }
+
+    public String resolve(String template) {
+        String prefix = template;
+        prefix = replace(prefix, PUBLIC_ADDRESS, () -> publicAddressResolver.resolve().getHostAddress().replace('.', '_'));
+        prefix = replace(prefix, UUID_PLACEHOLDER, () -> UUID.randomUUID().toString().replace("-", ""));
+        prefix = replace(prefix, HOSTNAME, () -> getHostname().replace('.', '_'));
+        prefix = replace(prefix, PID, MetricsPrefixResolver::getPid);
+        prefix = replace(prefix, CONTAINER_ID, MetricsPrefixResolver::getContainerId);
+        return prefix;
+    }
+
+    private static String replace(String prefix, String placeholder, Supplier<String> value) {
+        return prefix.contains(placeholder) ? prefix.replace(placeholder, value.get()) : prefix;
+    }
+
+    static String getHostname() {
+        final String env = System.getenv("HOSTNAME");
+        if (StringUtils.hasText(env)) {
+            return env.trim();
+        }
+        try {
+            final List<String> lines = Files.readAllLines(Paths.get("/etc/hostname"), StandardCharsets.US_ASCII);
+            if (!lines.isEmpty() && StringUtils.hasText(lines.get(0))) {
+                return lines.get(0).trim();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not on Linux, fall back to the JDK below
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return UNKNOWN;
+        }
+    }
+
+    static String getPid() {
+        final String name = ManagementFactory.getRuntimeMXBean().getName();
+        final int at = name.indexOf('@');
+        return at > 0 ? name.substring(0, at) : UNKNOWN;
+    }
+
+    static String getContainerId() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(CGROUP_FILE, StandardCharsets.US_ASCII);
+        } catch (IOException | RuntimeException e) {
+            lines = Collections.emptyList();
+        }
+        return parseContainerId(lines);
+    }
+
+    static String parseContainerId(List<String> cgroupLines) {
+        for (String line : cgroupLines) {
+            final int pathStart = line.indexOf(':', line.indexOf(':') + 1);
+            if (pathStart < 0) {
+                continue;
+            }
+            final Matcher matcher = CONTAINER_ID_PATTERN.matcher(line.substring(pathStart + 1).trim());
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+        return UNKNOWN;
+    }
+
+}
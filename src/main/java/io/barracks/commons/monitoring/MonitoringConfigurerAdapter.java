@@ -24,76 +24,255 @@
 
 package io.barracks.commons.monitoring;
 
-import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
 import com.codahale.metrics.graphite.Graphite;
 import com.codahale.metrics.graphite.GraphiteReporter;
 import com.codahale.metrics.graphite.GraphiteSender;
-import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
-import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
-import com.codahale.metrics.jvm.ThreadStatesGaugeSet;
-import com.codahale.metrics.servlet.InstrumentedFilter;
+import com.codahale.metrics.graphite.PickledGraphite;
 import com.ryantenney.metrics.spring.config.annotation.MetricsConfigurerAdapter;
+import io.barracks.commons.util.CachingPublicAddressResolver;
 import io.barracks.commons.util.PublicAddressResolver;
+import io.barracks.commons.util.RacingPublicAddressResolver;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.endpoint.SystemPublicMetrics;
-import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 import java.net.InetSocketAddress;
-import java.util.UUID;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 public class MonitoringConfigurerAdapter extends MetricsConfigurerAdapter {
 
+    // A cycle over 10k timers, a tenth of them updated, keeps the reporter thread busy for about 115 ms
+    // (ReporterBenchmark), so the reporter stays under 1% of a CPU from a 12 second interval
+    private static final long HIGH_RESOLUTION_INTERVAL_SECONDS = 15;
+    private static final long PUBLIC_METRICS_MAX_AGE_SECONDS = 1;
+
     @Value("${io.barracks.monitoring.graphite.host}")
     private String graphiteHost;
 
     @Value("${io.barracks.monitoring.graphite.port}")
     private int graphitePort;
 
+    @Value("${io.barracks.monitoring.graphite.protocol:PLAINTEXT}")
+    private GraphiteProtocol graphiteProtocol = GraphiteProtocol.PLAINTEXT;
+
+    @Value("${io.barracks.monitoring.graphite.batchSize:100}")
+    private int graphiteBatchSize = 100;
+
+    @Value("${io.barracks.monitoring.graphite.queueSize:10000}")
+    private int graphiteQueueSize = 10000;
+
+    @Value("${io.barracks.monitoring.udp.maxPacketSize:" + UdpReporter.DEFAULT_MAX_PACKET_SIZE + "}")
+    private int udpMaxPacketSize = UdpReporter.DEFAULT_MAX_PACKET_SIZE;
+
+    @Value("${io.barracks.monitoring.reporter.interval:60}")
+    private long reportingIntervalSeconds = 60;
+
+    @Value("${io.barracks.monitoring.reporter.rateUnit:MINUTES}")
+    private TimeUnit rateUnit = TimeUnit.MINUTES;
+
+    @Value("${io.barracks.monitoring.reporter.durationUnit:SECONDS}")
+    private TimeUnit durationUnit = TimeUnit.SECONDS;
+
+    @Value("${io.barracks.monitoring.reporter.highResolution:false}")
+    private boolean highResolution;
+
+    @Value("${io.barracks.monitoring.filter.include:}")
+    private String filterIncludes;
+
+    @Value("${io.barracks.monitoring.filter.exclude:}")
+    private String filterExcludes;
+
+    @Value("${io.barracks.monitoring.filter.maxSeries:0}")
+    private int filterMaxSeries;
+
+    @Value("${io.barracks.monitoring.filter.attributes:}")
+    private String filterAttributes;
+
+    @Value("${io.barracks.monitoring.jvm.enabled:true}")
+    private boolean jvmMetricsEnabled = true;
+
+    @Value("${io.barracks.monitoring.jvm.threadStates.refresh:10}")
+    private long threadStatesRefreshSeconds = 10;
+
+    @Value("${io.barracks.monitoring.prometheus.path:/prometheus}")
+    private String prometheusPath = "/prometheus";
+
     @Value("${io.barracks.monitoring.metrics.prefix}")
     private String metricsPrefix;
 
+    @Value("${io.barracks.monitoring.publicAddress.override:}")
+    private String publicAddressOverride;
+
+    @Value("${io.barracks.monitoring.publicAddress.ttl:3600}")
+    private long publicAddressTtlSeconds = 3600;
+
+    @Value("${io.barracks.monitoring.publicAddress.services:}")
+    private String publicAddressServices;
+
+    @Value("${io.barracks.monitoring.publicAddress.timeout:5000}")
+    private long publicAddressTimeoutMillis = RacingPublicAddressResolver.DEFAULT_TIMEOUT_MILLIS;
+
+    @Value("${io.barracks.monitoring.reservoir.type:EXPONENTIALLY_DECAYING}")
+    private ReservoirType reservoirType = ReservoirType.EXPONENTIALLY_DECAYING;
+
+    @Value("${io.barracks.monitoring.reservoir.window:60}")
+    private long reservoirWindowSeconds = 60;
+
+    @Value("${io.barracks.monitoring.reservoir.significantDigits:2}")
+    private int reservoirSignificantDigits = 2;
+
     @Autowired
     private SystemPublicMetrics systemPublicMetrics;
     private MetricRegistry metricRegistry;
+    private PublicAddressResolver publicAddressResolver;
+    private volatile String resolvedMetricsPrefix;
+    private ReportingMetricFilter metricFilter;
+    private volatile PublicMetricsGaugeSet publicMetricsGaugeSet;
+
+    protected GraphiteSender buildGraphiteSender() {
+        final InetSocketAddress address = new InetSocketAddress(getGraphiteHost(), getGraphitePort());
+        switch (graphiteProtocol) {
+            case PICKLE:
+                return new PickledGraphite(address, graphiteBatchSize);
+            default:
+                return new Graphite(address);
+        }
+    }
 
     protected GraphiteReporter buildGraphiteReporter(MetricRegistry metricRegistry) {
-        final GraphiteSender graphite = new Graphite(new InetSocketAddress(getGraphiteHost(), getGraphitePort()));
+        GraphiteSender graphite = buildGraphiteSender();
+        if (graphiteQueueSize > 0) {
+            final AsyncGraphiteSender asyncGraphite = new AsyncGraphiteSender(graphite, graphiteQueueSize, graphiteBatchSize);
+            metricRegistry.register("monitoring.graphite", asyncGraphite);
+            graphite = asyncGraphite;
+        }
+        final Set<MetricAttribute> disabledAttributes = getDisabledMetricAttributes();
+        if (!disabledAttributes.isEmpty()) {
+            graphite = new AttributeFilteringGraphiteSender(graphite, metricRegistry, getMetricsPrefix(), disabledAttributes);
+        }
         return GraphiteReporter.forRegistry(metricRegistry)
                 .prefixedWith(getMetricsPrefix())
-                .convertRatesTo(TimeUnit.MINUTES)
-                .convertDurationsTo(TimeUnit.SECONDS)
-                .filter(MetricFilter.ALL)
+                .convertRatesTo(getRateUnit())
+                .convertDurationsTo(getDurationUnit())
+                .filter(getMetricFilter(metricRegistry))
                 .build(graphite);
     }
 
+    protected UdpReporter buildUdpReporter(MetricRegistry metricRegistry, UdpReporter.Format format) {
+        return UdpReporter.forRegistry(metricRegistry)
+                .withFormat(format)
+                .withMaxPacketSize(udpMaxPacketSize)
+                .prefixedWith(getMetricsPrefix())
+                .convertRatesTo(getRateUnit())
+                .convertDurationsTo(getDurationUnit())
+                .filter(getMetricFilter(metricRegistry))
+                .disabledMetricAttributes(getDisabledMetricAttributes())
+                .build(new InetSocketAddress(getGraphiteHost(), getGraphitePort()));
+    }
+
+    protected ScheduledReporter buildReporter(MetricRegistry metricRegistry) {
+        switch (graphiteProtocol) {
+            case UDP:
+                return buildUdpReporter(metricRegistry, UdpReporter.Format.CARBON);
+            case STATSD:
+                return buildUdpReporter(metricRegistry, UdpReporter.Format.STATSD);
+            default:
+                return buildGraphiteReporter(metricRegistry);
+        }
+    }
+
     @Override
     public void configureReporters(MetricRegistry metricRegistry) {
-        this.metricRegistry = metricRegistry;
-        registerReporter(buildGraphiteReporter(metricRegistry)).start(1, TimeUnit.MINUTES);
+        if (jvmMetricsEnabled) {
+            metricRegistry.register("jvm", new JvmMetricSet(threadStatesRefreshSeconds, TimeUnit.SECONDS));
+            registerReporter(new GcNotificationListener(metricRegistry)).start();
+        }
+        publicMetricsGaugeSet = new PublicMetricsGaugeSet(systemPublicMetrics, PUBLIC_METRICS_MAX_AGE_SECONDS, TimeUnit.SECONDS);
+        publicMetricsGaugeSet.registerIn(metricRegistry);
+        registerReporter(buildReporter(metricRegistry)).start(getReportingIntervalSeconds(), TimeUnit.SECONDS);
     }
 
-    public MetricRegistry getMetricRegistry() {
-        MetricRegistry metricRegistry = new MetricRegistry();
-        metricRegistry.register("jvm.memory", new MemoryUsageGaugeSet());
-        metricRegistry.register("jvm.thread-states", new ThreadStatesGaugeSet());
-        metricRegistry.register("jvm.garbage-collector", new GarbageCollectorMetricSet());
+    /**
+     * Registers the gauges of the public metrics which appeared since the last sample and removes the stale ones.
+     * The values themselves are read on demand by the reporters.
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void exportPublicMetrics() {
+        if (publicMetricsGaugeSet != null) {
+            publicMetricsGaugeSet.refresh();
+        }
+    }
+
+    public synchronized MetricRegistry getMetricRegistry() {
+        if (metricRegistry == null) {
+            metricRegistry = new ReservoirMetricRegistry(getReservoirFactory());
+        }
         return metricRegistry;
     }
 
-    @Scheduled(fixedDelay = 30000)
-    public void exportPublicMetrics() {
-        for (Metric<?> metric : systemPublicMetrics.metrics()) {
-            Counter counter = metricRegistry.counter(metric.getName());
-            counter.dec(counter.getCount());
-            counter.inc(Double.valueOf(metric.getValue().toString()).longValue());
+    public ReservoirFactory getReservoirFactory() {
+        switch (reservoirType) {
+            case HDR_HISTOGRAM:
+                return () -> new HdrHistogramReservoir(reservoirSignificantDigits, reservoirWindowSeconds, TimeUnit.SECONDS);
+            case SLIDING_TIME_WINDOW_ARRAY:
+                return () -> new SlidingTimeWindowArrayReservoir(reservoirWindowSeconds, TimeUnit.SECONDS);
+            default:
+                return () -> new SnapshotCachingReservoir(new ExponentiallyDecayingReservoir());
+        }
+    }
+
+    public long getReportingIntervalSeconds() {
+        return highResolution ? HIGH_RESOLUTION_INTERVAL_SECONDS : reportingIntervalSeconds;
+    }
+
+    public TimeUnit getRateUnit() {
+        return highResolution ? TimeUnit.SECONDS : rateUnit;
+    }
+
+    public TimeUnit getDurationUnit() {
+        return highResolution ? TimeUnit.MILLISECONDS : durationUnit;
+    }
+
+    public synchronized MetricFilter getMetricFilter(MetricRegistry metricRegistry) {
+        if (metricFilter == null) {
+            metricFilter = new ReportingMetricFilter(toList(filterIncludes), toList(filterExcludes), filterMaxSeries, getDisabledMetricAttributes());
+            metricRegistry.register("monitoring.filter.overflow", metricFilter.getOverflow());
+        }
+        return metricFilter;
+    }
+
+    public Set<MetricAttribute> getDisabledMetricAttributes() {
+        final Set<MetricAttribute> disabled = EnumSet.noneOf(MetricAttribute.class);
+        final List<String> enabled = toList(filterAttributes);
+        if (!enabled.isEmpty()) {
+            disabled.addAll(EnumSet.allOf(MetricAttribute.class));
+            for (String attribute : enabled) {
+                disabled.remove(MetricAttribute.valueOf(attribute.toUpperCase(Locale.ROOT)));
+            }
         }
+        return disabled;
+    }
+
+    private static List<String> toList(String value) {
+        return StringUtils.hasText(value) ? Arrays.asList(StringUtils.tokenizeToStringArray(value, ",")) : Collections.emptyList();
     }
 
     public String getGraphiteHost() {
@@ -104,20 +283,68 @@ public class MonitoringConfigurerAdapter extends MetricsConfigurerAdapter {
         return graphitePort;
     }
 
+    public synchronized PublicAddressResolver getPublicAddressResolver() {
+        if (publicAddressResolver == null) {
+            final List<String> services = StringUtils.hasText(publicAddressServices)
+                    ? toList(publicAddressServices)
+                    : Arrays.asList(PublicAddressResolver.IP_RESOLUTION_SERVICE_1_URL, PublicAddressResolver.IP_RESOLUTION_SERVICE_2_URL);
+            publicAddressResolver = new CachingPublicAddressResolver(
+                    new RacingPublicAddressResolver(services, publicAddressTimeoutMillis, TimeUnit.MILLISECONDS),
+                    publicAddressTtlSeconds,
+                    TimeUnit.SECONDS,
+                    publicAddressOverride
+            );
+        }
+        return publicAddressResolver;
+    }
+
     public String getMetricsPrefix() {
-        return metricsPrefix
-                .replace("{publicAddress}", new PublicAddressResolver().resolve().getHostAddress().replace('.', '_'))
-                .replace("{uuid}", UUID.randomUUID().toString().replace("-", ""));
+        String prefix = resolvedMetricsPrefix;
+        if (prefix == null) {
+            synchronized (this) {
+                prefix = resolvedMetricsPrefix;
+                if (prefix == null) {
+                    prefix = new MetricsPrefixResolver(getPublicAddressResolver()).resolve(metricsPrefix);
+                    resolvedMetricsPrefix = prefix;
+                }
+            }
+        }
+        return prefix;
+    }
+
+    @Bean
+    public MetricsPrefix metricsPrefix() {
+        return new MetricsPrefix(getMetricsPrefix());
     }
 
     @Bean
     public FilterRegistrationBean instrumentedFilter() {
         FilterRegistrationBean registration = new FilterRegistrationBean();
-        registration.setFilter(new InstrumentedFilter());
-        registration.addInitParameter("name-prefix", "web");
+        registration.setFilter(new AsyncInstrumentedFilter(getMetricRegistry(), "web"));
         return registration;
     }
 
+    @Bean
+    public EndpointMetricsInterceptor endpointMetricsInterceptor() {
+        return new EndpointMetricsInterceptor(getMetricRegistry());
+    }
+
+    @Bean
+    public WebMvcConfigurerAdapter endpointMetricsWebMvcConfigurer() {
+        return new WebMvcConfigurerAdapter() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(endpointMetricsInterceptor());
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "io.barracks.monitoring.prometheus.enabled", havingValue = "true")
+    public ServletRegistrationBean prometheusMetricsServlet() {
+        return new ServletRegistrationBean(new PrometheusMetricsServlet(getMetricRegistry()), prometheusPath);
+    }
+
     @Bean
     public MetricsServletContextListener metricsServletContextListener() {
         return new MetricsServletContextListener();
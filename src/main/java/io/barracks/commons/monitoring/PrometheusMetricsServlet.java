@@ -0,0 +1,274 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes a {@link MetricRegistry} in the Prometheus text exposition format.
+ * <p>
+ * Gauges and counters are exposed as gauges, meters as counters suffixed with {@code _total}. Histograms and timers
+ * (in seconds) are exposed as gauges labelled by quantile plus a {@code _count} counter: Dropwizard does not track the
+ * sum of the recorded values, which a summary requires. The document is streamed to the response writer, metric names
+ * and the lines prefixes derived from them are computed once per metric. Metrics are only read, so scraping never
+ * blocks the code updating them.
+ * <p>
+ * Several registry names can sanitize to the same Prometheus name (e.g. {@code a.b} and {@code a_b}). Since a
+ * duplicated family makes Prometheus reject the whole scrape, only the first metric in registry name order is exposed,
+ * so the same metric wins on every scrape. The cached families of metrics removed from the registry are dropped.
+ */
+public class PrometheusMetricsServlet extends HttpServlet {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final long serialVersionUID = 1L;
+    private static final String[] QUANTILES = {"0.5", "0.75", "0.95", "0.98", "0.99", "0.999"};
+    private static final double SECONDS_PER_NANO = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    private final transient MetricRegistry registry;
+    private final transient ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+    public PrometheusMetricsServlet(MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(CONTENT_TYPE);
+        write(response.getWriter());
+    }
+
+    public void write(Writer writer) throws IOException {
+        final Set<String> written = new HashSet<>();
+        final SortedMap<String, Metric> metrics = new TreeMap<>(registry.getMetrics());
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            final Metric metric = entry.getValue();
+            final Type type = Type.of(metric);
+            if (type == null) {
+                continue;
+            }
+            final Family family = getFamily(entry.getKey(), type);
+            if (!family.claim(written)) {
+                continue;
+            }
+            switch (type) {
+                case GAUGE:
+                    writeGauge(writer, family, ((Gauge<?>) metric).getValue());
+                    break;
+                case COUNTER:
+                    writer.write(family.header);
+                    writer.write(family.valuePrefix);
+                    writeValue(writer, ((Counter) metric).getCount());
+                    break;
+                case METER:
+                    writer.write(family.header);
+                    writer.write(family.valuePrefix);
+                    writeValue(writer, ((Meter) metric).getCount());
+                    break;
+                case HISTOGRAM:
+                    writeSummary(writer, family, ((Histogram) metric).getSnapshot(), 1, ((Histogram) metric).getCount());
+                    break;
+                case TIMER:
+                    writeSummary(writer, family, ((Timer) metric).getSnapshot(), SECONDS_PER_NANO, ((Timer) metric).getCount());
+                    break;
+                default:
+                    break;
+            }
+        }
+        families.keySet().retainAll(metrics.keySet());
+        writer.flush();
+    }
+
+    int getCachedFamilies() {
+        return families.size();
+    }
+
+    private Family getFamily(String name, Type type) {
+        Family family = families.get(name);
+        if (family == null || family.type != type) {
+            family = new Family(name, type);
+            families.put(name, family);
+        }
+        return family;
+    }
+
+    private static void writeGauge(Writer writer, Family family, Object value) throws IOException {
+        final double number;
+        if (value instanceof Number) {
+            number = ((Number) value).doubleValue();
+        } else if (value instanceof Boolean) {
+            number = (Boolean) value ? 1 : 0;
+        } else {
+            return;
+        }
+        writer.write(family.header);
+        writer.write(family.valuePrefix);
+        writeValue(writer, number);
+    }
+
+    private static void writeSummary(Writer writer, Family family, Snapshot snapshot, double factor, long count) throws IOException {
+        writer.write(family.header);
+        writeQuantile(writer, family.quantilePrefixes[0], snapshot.getMedian() * factor);
+        writeQuantile(writer, family.quantilePrefixes[1], snapshot.get75thPercentile() * factor);
+        writeQuantile(writer, family.quantilePrefixes[2], snapshot.get95thPercentile() * factor);
+        writeQuantile(writer, family.quantilePrefixes[3], snapshot.get98thPercentile() * factor);
+        writeQuantile(writer, family.quantilePrefixes[4], snapshot.get99thPercentile() * factor);
+        writeQuantile(writer, family.quantilePrefixes[5], snapshot.get999thPercentile() * factor);
+        writer.write(family.countHeader);
+        writer.write(family.countPrefix);
+        writeValue(writer, count);
+    }
+
+    private static void writeQuantile(Writer writer, String prefix, double value) throws IOException {
+        writer.write(prefix);
+        writeValue(writer, value);
+    }
+
+    private static void writeValue(Writer writer, long value) throws IOException {
+        writer.write(Long.toString(value));
+        writer.write('\n');
+    }
+
+    private static void writeValue(Writer writer, double value) throws IOException {
+        if (Double.isNaN(value)) {
+            writer.write("NaN");
+        } else if (Double.isInfinite(value)) {
+            writer.write(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+            writer.write(Long.toString((long) value));
+        } else {
+            writer.write(Double.toString(value));
+        }
+        writer.write('\n');
+    }
+
+    static String sanitize(String name) {
+        final StringBuilder sanitized = new StringBuilder(name.length() + 1);
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            final boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+                    || (c >= '0' && c <= '9' && i > 0);
+            if (c >= '0' && c <= '9' && i == 0) {
+                sanitized.append('_').append(c);
+            } else {
+                sanitized.append(valid ? c : '_');
+            }
+        }
+        return sanitized.toString();
+    }
+
+    private enum Type {
+        GAUGE("gauge", ""),
+        COUNTER("gauge", ""),
+        METER("counter", "_total"),
+        HISTOGRAM("gauge", ""),
+        TIMER("gauge", "");
+
+        private final String prometheusType;
+        private final String suffix;
+
+        Type(String prometheusType, String suffix) {
+            this.prometheusType = prometheusType;
+            this.suffix = suffix;
+        }
+
+        private static Type of(Metric metric) {
+            if (metric instanceof Gauge) {
+                return GAUGE;
+            } else if (metric instanceof Counter) {
+                return COUNTER;
+            } else if (metric instanceof Meter) {
+                return METER;
+            } else if (metric instanceof Histogram) {
+                return HISTOGRAM;
+            } else if (metric instanceof Timer) {
+                return TIMER;
+            }
+            return null;
+        }
+    }
+
+    private static final class Family {
+        private final Type type;
+        private final String name;
+        private final String countName;
+        private final String header;
+        private final String valuePrefix;
+        private final String countHeader;
+        private final String countPrefix;
+        private final String[] quantilePrefixes = new String[QUANTILES.length];
+
+        private Family(String metricName, Type type) {
+            this.name = sanitize(metricName) + type.suffix;
+            this.countName = type == Type.HISTOGRAM || type == Type.TIMER ? name + "_count" : null;
+            this.type = type;
+            this.header = "# TYPE " + name + ' ' + type.prometheusType + '\n';
+            this.valuePrefix = name + ' ';
+            this.countHeader = "# TYPE " + name + "_count counter\n";
+            this.countPrefix = name + "_count ";
+            for (int i = 0; i < QUANTILES.length; i++) {
+                quantilePrefixes[i] = name + "{quantile=\"" + QUANTILES[i] + "\"} ";
+            }
+        }
+
+        /**
+         * Reserves the Prometheus names of this family for the current scrape.
+         *
+         * @return false if one of them was already written by another metric.
+         */
+        private boolean claim(Set<String> written) {
+            if (written.contains(name) || (countName != null && written.contains(countName))) {
+                return false;
+            }
+            written.add(name);
+            if (countName != null) {
+                written.add(countName);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes Spring Boot's {@link PublicMetrics} as gauges keeping the original numeric values.
+ * <p>
+ * The public metrics are only computed when a gauge is read, and at most once per {@code maxAge} so that a reporting
+ * cycle reading all the gauges computes them once.
+ * <p>
+ * Once {@link #registerIn(MetricRegistry) registered}, the gauges follow the public metrics: every new sample and
+ * {@link #refresh()} register the names which appeared and remove the ones which disappeared.
+ */
+public class PublicMetricsGaugeSet implements MetricSet {
+
+    private final PublicMetrics publicMetrics;
+    private final long maxAge;
+    private final Set<String> registeredNames = new HashSet<>();
+    private volatile Sample sample;
+    private volatile MetricRegistry registry;
+
+    public PublicMetricsGaugeSet(PublicMetrics publicMetrics, long maxAge, TimeUnit unit) {
+        this.publicMetrics = publicMetrics;
+        this.maxAge = unit.toNanos(maxAge);
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> gauges = new HashMap<>();
+        for (String name : getSample().values.keySet()) {
+            gauges.put(name, gauge(name));
+        }
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    public void registerIn(MetricRegistry registry) {
+        this.registry = registry;
+        synchronize(getSample());
+    }
+
+    public void refresh() {
+        if (registry != null) {
+            synchronize(getSample());
+        }
+    }
+
+    private Gauge<Number> gauge(String name) {
+        return () -> getSample().values.get(name);
+    }
+
+    private synchronized void synchronize(Sample current) {
+        for (String name : current.values.keySet()) {
+            if (!registeredNames.contains(name)) {
+                try {
+                    registry.register(name, gauge(name));
+                    registeredNames.add(name);
+                } catch (IllegalArgumentException e) {
+                    // Name already taken by another metric
+                }
+            }
+        }
+        for (Iterator<String> names = registeredNames.iterator(); names.hasNext(); ) {
+            final String name = names.next();
+            if (!current.values.containsKey(name)) {
+                registry.remove(name);
+                names.remove();
+            }
+        }
+    }
+
+    private Sample getSample() {
+        final Sample previous = sample;
+        Sample current = previous;
+        if (current == null || System.nanoTime() - current.sampledAt >= maxAge) {
+            final Map<String, Number> values = new HashMap<>();
+            for (org.springframework.boot.actuate.metrics.Metric<?> metric : publicMetrics.metrics()) {
+                values.put(metric.getName(), metric.getValue());
+            }
+            current = new Sample(values, System.nanoTime());
+            sample = current;
+            if (registry != null && previous != null && !previous.values.keySet().equals(values.keySet())) {
+                synchronize(current);
+            }
+        }
+        return current;
+    }
+
+    private static final class Sample {
+        private final Map<String, Number> values;
+        private final long sampledAt;
+
+        private Sample(Map<String, Number> values, long sampledAt) {
+            this.values = values;
+            this.sampledAt = sampledAt;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.Timer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the metrics sent by the reporters.
+ * <p>
+ * Include and exclude entries are name prefixes, or regular expressions when prefixed with {@value #REGEX_PREFIX}. A
+ * metric is reported when it matches an include entry (or no include entry is given) and no exclude entry.
+ * <p>
+ * {@code maxSeries} caps the number of reported series: a timer counts for each of its enabled attributes (up to 15), a
+ * histogram up to 11, a meter up to 5, gauges and counters for 1. Once the cap is reached, new metrics are rejected
+ * and the overflow counter is incremented each time one of them is skipped by a report. Accepted names are cached,
+ * rejections are only cached up to {@value #MAX_CACHED_REJECTIONS} names and never past the cap, so a high-cardinality
+ * source does not grow the cache without bound.
+ */
+public class ReportingMetricFilter implements MetricFilter {
+
+    public static final String REGEX_PREFIX = "regex:";
+
+    static final int MAX_CACHED_REJECTIONS = 10000;
+
+    private static final Set<MetricAttribute> METER_ATTRIBUTES = EnumSet.of(
+            MetricAttribute.COUNT, MetricAttribute.M1_RATE, MetricAttribute.M5_RATE, MetricAttribute.M15_RATE, MetricAttribute.MEAN_RATE
+    );
+    private static final Set<MetricAttribute> HISTOGRAM_ATTRIBUTES = EnumSet.range(MetricAttribute.COUNT, MetricAttribute.P999);
+
+    private final List<Matcher> includes;
+    private final List<Matcher> excludes;
+    private final int maxSeries;
+    private final int meterSeries;
+    private final int histogramSeries;
+    private final int timerSeries;
+    private final AtomicInteger acceptedSeries = new AtomicInteger();
+    private final AtomicInteger cachedRejections = new AtomicInteger();
+    private final Counter overflow = new Counter();
+    private final ConcurrentMap<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+    public ReportingMetricFilter(Collection<String> includes, Collection<String> excludes, int maxSeries) {
+        this(includes, excludes, maxSeries, Collections.emptySet());
+    }
+
+    public ReportingMetricFilter(Collection<String> includes, Collection<String> excludes, int maxSeries, Set<MetricAttribute> disabledAttributes) {
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+        this.maxSeries = maxSeries;
+        this.meterSeries = countEnabled(METER_ATTRIBUTES, disabledAttributes);
+        this.histogramSeries = countEnabled(HISTOGRAM_ATTRIBUTES, disabledAttributes);
+        this.timerSeries = countEnabled(EnumSet.allOf(MetricAttribute.class), disabledAttributes);
+    }
+
+    @Override
+    public boolean matches(String name, Metric metric) {
+        if (metric == overflow) {
+            return true;
+        }
+        final Boolean decision = decisions.get(name);
+        if (decision != null) {
+            return decision;
+        }
+        return decide(name, metric);
+    }
+
+    public Counter getOverflow() {
+        return overflow;
+    }
+
+    int getAcceptedSeries() {
+        return acceptedSeries.get();
+    }
+
+    int getCachedDecisions() {
+        return decisions.size();
+    }
+
+    private boolean decide(String name, Metric metric) {
+        if (!isIncluded(name)) {
+            if (cachedRejections.get() < MAX_CACHED_REJECTIONS && decisions.putIfAbsent(name, Boolean.FALSE) == null) {
+                cachedRejections.incrementAndGet();
+            }
+            return false;
+        }
+        if (maxSeries <= 0) {
+            decisions.putIfAbsent(name, Boolean.TRUE);
+            return true;
+        }
+        synchronized (decisions) {
+            final Boolean decision = decisions.get(name);
+            if (decision != null) {
+                return decision;
+            }
+            final int series = countSeries(metric);
+            if (acceptedSeries.get() + series > maxSeries) {
+                overflow.inc();
+                return false;
+            }
+            acceptedSeries.addAndGet(series);
+            decisions.put(name, Boolean.TRUE);
+            return true;
+        }
+    }
+
+    private int countSeries(Metric metric) {
+        if (metric instanceof Timer) {
+            return timerSeries;
+        }
+        if (metric instanceof Histogram) {
+            return histogramSeries;
+        }
+        if (metric instanceof Meter) {
+            return meterSeries;
+        }
+        return 1;
+    }
+
+    private static int countEnabled(Set<MetricAttribute> attributes, Set<MetricAttribute> disabled) {
+        int count = 0;
+        for (MetricAttribute attribute : attributes) {
+            if (!disabled.contains(attribute)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean isIncluded(String name) {
+        return (includes.isEmpty() || matchesAny(includes, name)) && !matchesAny(excludes, name);
+    }
+
+    private static boolean matchesAny(List<Matcher> matchers, String name) {
+        for (Matcher matcher : matchers) {
+            if (matcher.matches(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Matcher> compile(Collection<String> entries) {
+        final List<Matcher> matchers = new ArrayList<>();
+        if (entries != null) {
+            for (String entry : entries) {
+                if (entry.startsWith(REGEX_PREFIX)) {
+                    final Pattern pattern = Pattern.compile(entry.substring(REGEX_PREFIX.length()));
+                    matchers.add(name -> pattern.matcher(name).matches());
+                } else if (!entry.isEmpty()) {
+                    matchers.add(name -> name.startsWith(entry));
+                }
+            }
+        }
+        return matchers;
+    }
+
+    private interface Matcher {
+        boolean matches(String name);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * A {@link MetricRegistry} creating its timers and histograms with the reservoirs of a {@link ReservoirFactory}, so
+ * that every metric obtained by name (web filter, monitors, annotations...) uses them.
+ */
+public class ReservoirMetricRegistry extends MetricRegistry {
+
+    private final ReservoirFactory reservoirFactory;
+
+    public ReservoirMetricRegistry(ReservoirFactory reservoirFactory) {
+        this.reservoirFactory = reservoirFactory;
+    }
+
+    public ReservoirFactory getReservoirFactory() {
+        return reservoirFactory;
+    }
+
+    @Override
+    public Timer timer(String name) {
+        final Metric metric = getMetrics().get(name);
+        if (metric instanceof Timer) {
+            return (Timer) metric;
+        }
+        if (metric == null) {
+            try {
+                return register(name, new Timer(reservoirFactory.create()));
+            } catch (IllegalArgumentException e) {
+                // Registered concurrently, fall back to the existing one
+            }
+        }
+        return super.timer(name);
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        final Metric metric = getMetrics().get(name);
+        if (metric instanceof Histogram) {
+            return (Histogram) metric;
+        }
+        if (metric == null) {
+            try {
+                return register(name, new Histogram(reservoirFactory.create()));
+            } catch (IllegalArgumentException e) {
+                // Registered concurrently, fall back to the existing one
+            }
+        }
+        return super.histogram(name);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Safepoint count and times (in milliseconds) read from HotSpot's internal runtime MBean. Empty when the JVM does not
+ * expose it.
+ */
+class SafepointGaugeSet implements MetricSet {
+
+    private static final String HELPER_CLASS = "sun.management.ManagementFactoryHelper";
+    private static final String MBEAN_CLASS = "sun.management.HotspotRuntimeMBean";
+
+    private final Logger logger = LoggerFactory.getLogger(SafepointGaugeSet.class);
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        try {
+            final Object runtime = Class.forName(HELPER_CLASS).getMethod("getHotspotRuntimeMBean").invoke(null);
+            final Class<?> mbeanClass = Class.forName(MBEAN_CLASS);
+            final Map<String, Metric> gauges = new HashMap<>();
+            gauges.put("count", gauge(runtime, mbeanClass.getMethod("getSafepointCount")));
+            gauges.put("time", gauge(runtime, mbeanClass.getMethod("getTotalSafepointTime")));
+            gauges.put("sync-time", gauge(runtime, mbeanClass.getMethod("getSafepointSyncTime")));
+            // Fail now rather than on every report when the internal API is not accessible
+            gauges.values().forEach(gauge -> ((Gauge<?>) gauge).getValue());
+            return Collections.unmodifiableMap(gauges);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            logger.debug("Safepoint metrics are not available on this JVM", e);
+            return Collections.emptyMap();
+        }
+    }
+
+    private static Gauge<Long> gauge(Object runtime, Method method) {
+        return () -> {
+            try {
+                return (Long) method.invoke(runtime);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformSnapshot;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link Reservoir} keeping the values recorded during the last window in ring buffers.
+ * <p>
+ * Updates are lock-free. Threads are spread over several buffers to limit contention, each buffer keeps its most
+ * recent values, so at most {@code capacity} values are kept for a window. The buffers start small and double, up to
+ * {@code capacity}, whenever they would overwrite a value still in the window: idle timers stay cheap and busy ones
+ * stop allocating once their buffers fit the update rate. A few concurrent updates can be lost while a buffer grows.
+ */
+public class SlidingTimeWindowArrayReservoir implements Reservoir {
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int INITIAL_CAPACITY = 1 << 8;
+    private static final int MIN_STRIPE_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final long window;
+    private final Clock clock;
+
+    public SlidingTimeWindowArrayReservoir(long window, TimeUnit windowUnit) {
+        this(window, windowUnit, DEFAULT_CAPACITY, Clock.defaultClock());
+    }
+
+    public SlidingTimeWindowArrayReservoir(long window, TimeUnit windowUnit, int capacity, Clock clock) {
+        final int stripeCount = Math.min(
+                Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1),
+                Integer.highestOneBit(Math.max(1, capacity))
+        );
+        final int stripeCapacity = Integer.highestOneBit(Math.max(1, capacity / stripeCount));
+        final int initialStripeCapacity = Math.min(stripeCapacity, Math.max(MIN_STRIPE_CAPACITY, INITIAL_CAPACITY / stripeCount));
+        this.window = windowUnit.toNanos(window);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(initialStripeCapacity, stripeCapacity, this.window);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.clock = clock;
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        stripes[(int) Thread.currentThread().getId() & stripeMask].update(value, clock.getTick());
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        final long now = clock.getTick();
+        long[] values = new long[0];
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            final Buffer buffer = stripe.buffer;
+            final long cursor = stripe.cursor.get();
+            final long first = Math.max(buffer.first, cursor - buffer.values.length());
+            if (cursor <= first) {
+                continue;
+            }
+            if (size + cursor - first > values.length) {
+                values = Arrays.copyOf(values, size + (int) (cursor - first));
+            }
+            for (long i = first; i < cursor; i++) {
+                final int index = (int) (i & buffer.mask);
+                if (now - buffer.ticks.get(index) <= window) {
+                    values[size++] = buffer.values.get(index);
+                }
+            }
+        }
+        return new UniformSnapshot(Arrays.copyOf(values, size));
+    }
+
+    int capacity() {
+        int capacity = 0;
+        for (Stripe stripe : stripes) {
+            capacity += stripe.buffer.values.length();
+        }
+        return capacity;
+    }
+
+    private static final class Stripe {
+        private final AtomicLong cursor = new AtomicLong();
+        private final int maxCapacity;
+        private final long window;
+        private volatile Buffer buffer;
+
+        private Stripe(int initialCapacity, int maxCapacity, long window) {
+            this.buffer = new Buffer(initialCapacity, 0);
+            this.maxCapacity = maxCapacity;
+            this.window = window;
+        }
+
+        private void update(long value, long tick) {
+            Buffer current = buffer;
+            final long position = cursor.getAndIncrement();
+            final int index = (int) (position & current.mask);
+            if (position >= current.values.length() && current.values.length() < maxCapacity
+                    && tick - current.ticks.get(index) <= window) {
+                current = grow(current, position);
+            }
+            current.set(position, value, tick);
+        }
+
+        private synchronized Buffer grow(Buffer current, long position) {
+            if (buffer != current) {
+                return buffer;
+            }
+            final long first = Math.max(current.first, position - current.values.length());
+            final Buffer grown = new Buffer(current.values.length() * 2, first);
+            for (long i = first; i < position; i++) {
+                final int index = (int) (i & current.mask);
+                grown.set(i, current.values.get(index), current.ticks.get(index));
+            }
+            buffer = grown;
+            return grown;
+        }
+    }
+
+    private static final class Buffer {
+        private final AtomicLongArray values;
+        private final AtomicLongArray ticks;
+        private final int mask;
+        private final long first;
+
+        private Buffer(int capacity, long first) {
+            this.values = new AtomicLongArray(capacity);
+            this.ticks = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            this.first = first;
+        }
+
+        private void set(long position, long value, long tick) {
+            final int index = (int) (position & mask);
+            values.lazySet(index, value);
+            ticks.lazySet(index, tick);
+        }
+    }
+}
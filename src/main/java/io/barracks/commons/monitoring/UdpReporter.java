@@ -0,0 +1,396 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metered;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fire-and-forget reporter sending metric values over UDP, either as Carbon plaintext lines or as StatsD gauges.
+ * <p>
+ * Lines are written straight into a reused buffer and packed into datagrams no larger than the maximum packet size.
+ * Values are always sent as absolute gauges since the registry already aggregates them.
+ */
+public class UdpReporter extends ScheduledReporter {
+
+    public static final int DEFAULT_MAX_PACKET_SIZE = 1432;
+
+    private static final byte[][] ATTRIBUTES = new byte[MetricAttribute.values().length][];
+    private static final byte[] STATSD_GAUGE = ascii("|g\n");
+    private static final byte[] LONG_MIN_VALUE = ascii(Long.toString(Long.MIN_VALUE));
+    private static final int FRACTION_DIGITS = 6;
+    private static final long FRACTION_SCALE = 1000000L;
+    private static final double MAX_SCALED_VALUE = 1e12;
+    private static final int MAX_LINE_OVERHEAD = 48;
+
+    static {
+        for (MetricAttribute attribute : MetricAttribute.values()) {
+            ATTRIBUTES[attribute.ordinal()] = ascii(attribute.getCode());
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(UdpReporter.class);
+    private final InetSocketAddress address;
+    private final Format format;
+    private final Clock clock;
+    private final byte[] prefix;
+    private final Set<MetricAttribute> disabledAttributes;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+    private byte[] encodedName = new byte[256];
+    private int encodedNameLength;
+    private String lastName;
+    private DatagramChannel channel;
+    private long timestamp;
+
+    private UdpReporter(MetricRegistry registry, InetSocketAddress address, Format format, Clock clock, String prefix,
+                        int maxPacketSize, TimeUnit rateUnit, TimeUnit durationUnit, MetricFilter filter,
+                        Set<MetricAttribute> disabledAttributes) {
+        super(registry, "udp-reporter", filter, rateUnit, durationUnit);
+        this.address = address;
+        this.format = format;
+        this.clock = clock;
+        this.prefix = prefix == null || prefix.isEmpty() ? new byte[0] : ascii(prefix + ".");
+        this.buffer = ByteBuffer.allocate(maxPacketSize);
+        this.disabledAttributes = disabledAttributes.isEmpty()
+                ? EnumSet.noneOf(MetricAttribute.class)
+                : EnumSet.copyOf(disabledAttributes);
+    }
+
+    public static Builder forRegistry(MetricRegistry registry) {
+        return new Builder(registry);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public synchronized void report(SortedMap<String, Gauge> gauges, SortedMap<String, Counter> counters,
+                                    SortedMap<String, Histogram> histograms, SortedMap<String, Meter> meters,
+                                    SortedMap<String, Timer> timers) {
+        timestamp = clock.getTime() / 1000;
+        buffer.clear();
+        try {
+            if (channel == null) {
+                channel = DatagramChannel.open();
+                channel.configureBlocking(false);
+            }
+            for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+                reportGauge(entry.getKey(), entry.getValue().getValue());
+            }
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                report(entry.getKey(), ATTRIBUTES[MetricAttribute.COUNT.ordinal()], entry.getValue().getCount(), 0, true);
+            }
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                reportLong(entry.getKey(), MetricAttribute.COUNT, entry.getValue().getCount());
+                reportSnapshot(entry.getKey(), entry.getValue().getSnapshot(), false);
+            }
+            for (Map.Entry<String, Meter> entry : meters.entrySet()) {
+                reportMetered(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+                reportMetered(entry.getKey(), entry.getValue());
+                reportSnapshot(entry.getKey(), entry.getValue().getSnapshot(), true);
+            }
+            sendPacket();
+        } catch (IOException e) {
+            logger.warn("Unable to report to {}", address, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        try {
+            super.stop();
+        } finally {
+            synchronized (this) {
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        logger.debug("Failed to close UDP channel", e);
+                    }
+                    channel = null;
+                }
+            }
+        }
+    }
+
+    private void reportGauge(String name, Object value) throws IOException {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            report(name, null, ((Number) value).longValue(), 0, true);
+        } else if (value instanceof Number) {
+            final double doubleValue = ((Number) value).doubleValue();
+            if (!Double.isNaN(doubleValue) && !Double.isInfinite(doubleValue)) {
+                report(name, null, 0, doubleValue, false);
+            }
+        } else if (value instanceof Boolean) {
+            report(name, null, (Boolean) value ? 1 : 0, 0, true);
+        }
+    }
+
+    private void reportMetered(String name, Metered metered) throws IOException {
+        reportLong(name, MetricAttribute.COUNT, metered.getCount());
+        reportDouble(name, MetricAttribute.M1_RATE, convertRate(metered.getOneMinuteRate()));
+        reportDouble(name, MetricAttribute.M5_RATE, convertRate(metered.getFiveMinuteRate()));
+        reportDouble(name, MetricAttribute.M15_RATE, convertRate(metered.getFifteenMinuteRate()));
+        reportDouble(name, MetricAttribute.MEAN_RATE, convertRate(metered.getMeanRate()));
+    }
+
+    private void reportSnapshot(String name, Snapshot snapshot, boolean durations) throws IOException {
+        reportDouble(name, MetricAttribute.MAX, scale(snapshot.getMax(), durations));
+        reportDouble(name, MetricAttribute.MEAN, scale(snapshot.getMean(), durations));
+        reportDouble(name, MetricAttribute.MIN, scale(snapshot.getMin(), durations));
+        reportDouble(name, MetricAttribute.STDDEV, scale(snapshot.getStdDev(), durations));
+        reportDouble(name, MetricAttribute.P50, scale(snapshot.getMedian(), durations));
+        reportDouble(name, MetricAttribute.P75, scale(snapshot.get75thPercentile(), durations));
+        reportDouble(name, MetricAttribute.P95, scale(snapshot.get95thPercentile(), durations));
+        reportDouble(name, MetricAttribute.P98, scale(snapshot.get98thPercentile(), durations));
+        reportDouble(name, MetricAttribute.P99, scale(snapshot.get99thPercentile(), durations));
+        reportDouble(name, MetricAttribute.P999, scale(snapshot.get999thPercentile(), durations));
+    }
+
+    private double scale(double value, boolean duration) {
+        return duration ? convertDuration(value) : value;
+    }
+
+    private void reportLong(String name, MetricAttribute attribute, long value) throws IOException {
+        if (!disabledAttributes.contains(attribute)) {
+            report(name, ATTRIBUTES[attribute.ordinal()], value, 0, true);
+        }
+    }
+
+    private void reportDouble(String name, MetricAttribute attribute, double value) throws IOException {
+        if (!disabledAttributes.contains(attribute) && !Double.isNaN(value) && !Double.isInfinite(value)) {
+            report(name, ATTRIBUTES[attribute.ordinal()], 0, value, false);
+        }
+    }
+
+    private void report(String name, byte[] suffix, long longValue, double doubleValue, boolean integral) throws IOException {
+        final int maxLength = prefix.length + name.length() + (suffix == null ? 0 : suffix.length + 1) + MAX_LINE_OVERHEAD;
+        if (buffer.remaining() < maxLength) {
+            sendPacket();
+        }
+        final int start = buffer.position();
+        try {
+            writeLine(name, suffix, longValue, doubleValue, integral);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            logger.debug("Metric {} does not fit in a {} bytes packet", name, buffer.capacity());
+        }
+    }
+
+    private void writeLine(String name, byte[] suffix, long longValue, double doubleValue, boolean integral) {
+        if (name != lastName) {
+            encodeName(name);
+        }
+        buffer.put(encodedName, 0, encodedNameLength);
+        if (suffix != null) {
+            buffer.put((byte) '.');
+            buffer.put(suffix);
+        }
+        buffer.put(format == Format.STATSD ? (byte) ':' : (byte) ' ');
+        if (integral) {
+            writeLong(longValue);
+        } else {
+            writeDouble(doubleValue);
+        }
+        if (format == Format.STATSD) {
+            buffer.put(STATSD_GAUGE);
+        } else {
+            buffer.put((byte) ' ');
+            writeLong(timestamp);
+            buffer.put((byte) '\n');
+        }
+    }
+
+    /**
+     * Encodes the prefixed name once for all the lines of a metric.
+     */
+    private void encodeName(String name) {
+        final int length = prefix.length + name.length();
+        if (encodedName.length < length) {
+            encodedName = new byte[Math.max(length, encodedName.length * 2)];
+        }
+        System.arraycopy(prefix, 0, encodedName, 0, prefix.length);
+        int position = prefix.length;
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (c <= ' ') {
+                encodedName[position++] = '-';
+            } else if (c >= 0x7f || (format == Format.STATSD && (c == ':' || c == '|' || c == '@'))) {
+                encodedName[position++] = '_';
+            } else {
+                encodedName[position++] = (byte) c;
+            }
+        }
+        encodedNameLength = position;
+        lastName = name;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            buffer.put(LONG_MIN_VALUE);
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, position, digits.length - position);
+    }
+
+    private void writeDouble(double value) {
+        if (Math.abs(value) >= MAX_SCALED_VALUE) {
+            writeLong(Math.round(value));
+            return;
+        }
+        long scaled = Math.round(value * FRACTION_SCALE);
+        if (scaled < 0) {
+            buffer.put((byte) '-');
+            scaled = -scaled;
+        }
+        writeLong(scaled / FRACTION_SCALE);
+        long fraction = scaled % FRACTION_SCALE;
+        if (fraction == 0) {
+            return;
+        }
+        int length = FRACTION_DIGITS;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            length--;
+        }
+        buffer.put((byte) '.');
+        for (int i = length - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        buffer.put(digits, 0, length);
+    }
+
+    private void sendPacket() throws IOException {
+        buffer.flip();
+        if (buffer.hasRemaining() && channel.send(buffer, address) == 0) {
+            logger.debug("Dropped a {} bytes packet to {}", buffer.limit(), address);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public enum Format {
+        CARBON,
+        STATSD
+    }
+
+    public static class Builder {
+        private final MetricRegistry registry;
+        private Format format = Format.CARBON;
+        private Clock clock = Clock.defaultClock();
+        private String prefix;
+        private int maxPacketSize = DEFAULT_MAX_PACKET_SIZE;
+        private TimeUnit rateUnit = TimeUnit.SECONDS;
+        private TimeUnit durationUnit = TimeUnit.MILLISECONDS;
+        private MetricFilter filter = MetricFilter.ALL;
+        private Set<MetricAttribute> disabledAttributes = Collections.emptySet();
+
+        private Builder(MetricRegistry registry) {
+            this.registry = registry;
+        }
+
+        public Builder withFormat(Format format) {
+            this.format = format;
+            return this;
+        }
+
+        public Builder withClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public Builder prefixedWith(String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        public Builder withMaxPacketSize(int maxPacketSize) {
+            this.maxPacketSize = maxPacketSize;
+            return this;
+        }
+
+        public Builder convertRatesTo(TimeUnit rateUnit) {
+            this.rateUnit = rateUnit;
+            return this;
+        }
+
+        public Builder convertDurationsTo(TimeUnit durationUnit) {
+            this.durationUnit = durationUnit;
+            return this;
+        }
+
+        public Builder filter(MetricFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        public Builder disabledMetricAttributes(Set<MetricAttribute> disabledAttributes) {
+            this.disabledAttributes = disabledAttributes;
+            return this;
+        }
+
+        public UdpReporter build(InetSocketAddress address) {
+            return new UdpReporter(registry, address, format, clock, prefix, maxPacketSize, rateUnit, durationUnit, filter, disabledAttributes);
+        }
+    }
+}
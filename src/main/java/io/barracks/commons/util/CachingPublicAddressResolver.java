@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves the public address once and serves it from memory afterwards.
+ * <p>
+ * Once the TTL is over, the cached address is still returned while a refresh runs in the background. When the refresh
+ * fails the last known address is kept and the refresh is retried later. When an override address is given, it is
+ * used as is and no external service is ever called.
+ */
+public class CachingPublicAddressResolver extends PublicAddressResolver {
+
+    private static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toNanos(1);
+
+    private final Logger logger = LoggerFactory.getLogger(CachingPublicAddressResolver.class);
+    private final PublicAddressResolver delegate;
+    private final long ttl;
+    private final String overrideAddress;
+    private final Executor executor;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile CachedAddress cached;
+
+    public CachingPublicAddressResolver() {
+        this(new PublicAddressResolver(), 1, TimeUnit.HOURS, null);
+    }
+
+    public CachingPublicAddressResolver(PublicAddressResolver delegate, long ttl, TimeUnit ttlUnit, String overrideAddress) {
+        this(delegate, ttl, ttlUnit, overrideAddress, task -> {
+            final Thread thread = new Thread(task, "public-address-refresh");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    public CachingPublicAddressResolver(PublicAddressResolver delegate, long ttl, TimeUnit ttlUnit, String overrideAddress, Executor executor) {
+        this.delegate = delegate;
+        this.ttl = ttlUnit.toNanos(ttl);
+        this.overrideAddress = overrideAddress;
+        this.executor = executor;
+    }
+
+    @Override
+    public InetAddress resolve() {
+        CachedAddress current = cached;
+        if (current == null) {
+            synchronized (this) {
+                current = cached;
+                if (current == null) {
+                    current = load();
+                    cached = current;
+                }
+            }
+        } else if (current.isExpired()) {
+            refresh(current);
+        }
+        return current.address;
+    }
+
+    private CachedAddress load() {
+        if (overrideAddress != null && !overrideAddress.isEmpty()) {
+            try {
+                return new CachedAddress(InetAddress.getByName(overrideAddress), Long.MAX_VALUE);
+            } catch (UnknownHostException e) {
+                throw new PublicIpResolverException(e);
+            }
+        }
+        return new CachedAddress(delegate.resolve(), System.nanoTime() + ttl);
+    }
+
+    private void refresh(CachedAddress current) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    cached = new CachedAddress(delegate.resolve(), System.nanoTime() + ttl);
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to refresh public address, keeping {}", current.address, e);
+                    cached = new CachedAddress(current.address, System.nanoTime() + Math.min(ttl, MAX_RETRY_DELAY));
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            logger.warn("Failed to schedule public address refresh", e);
+        }
+    }
+
+    private static final class CachedAddress {
+        private final InetAddress address;
+        private final long expiresAt;
+
+        private CachedAddress(InetAddress address, long expiresAt) {
+            this.address = address;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return expiresAt != Long.MAX_VALUE && System.nanoTime() - expiresAt >= 0;
+        }
+    }
+}
@@ -33,21 +33,20 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
-import java.net.URLEncoder;
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class Endpoint {
     private final HttpMethod method;
     private final String path;
     private final String query;
+    private final ConcurrentMap<String, UrlTemplate> templates = new ConcurrentHashMap<>();
 
     private Endpoint(HttpMethod method, String path) {
         this(method, path, null);
@@ -83,6 +82,17 @@ public class Endpoint {
         return new EntityBuilder<>(base);
     }
 
+    private UrlTemplate getTemplate(String base) {
+        final UrlTemplate template = templates.get(base);
+        if (template != null) {
+            return template;
+        }
+        return templates.computeIfAbsent(
+                base,
+                key -> UrlTemplate.compile(key + (path == null ? "" : path) + (query == null ? "" : "?" + query))
+        );
+    }
+
     public final class EntityBuilder<T> {
         private final String base;
         private T body;
@@ -119,53 +129,99 @@ public class Endpoint {
         }
 
         public URI getURI(Object... args) {
-            return UriComponentsBuilder.fromHttpUrl(expandUrl(args))
-                    .queryParams(serializePageable())
-                    .queryParams(serializeQueryParams())
-                    .build(true)
-                    .toUri();
-        }
-
-
-        private String expandUrl(Object... args) {
-            final String preFormatted = base + (path == null ? "" : path) + (query == null ? "" : "?" + query);
-            final Matcher matcher = Pattern.compile("(\\{\\p{Alnum}*})").matcher(preFormatted);
-            List<String> elements = new ArrayList<>();
-            int searchIdx = 0;
-            while (matcher.find(searchIdx) && matcher.group(1) != null) {
-                elements.add(preFormatted.substring(searchIdx, matcher.start()));
-                elements.add(null);
-                searchIdx = matcher.end();
-            }
-            if (searchIdx == preFormatted.length()) {
-                elements.add("");
-            } else {
-                elements.add(preFormatted.substring(searchIdx));
+            final StringBuilder builder = expandUrl(args);
+            final int queryStart = HttpUrlScanner.scan(builder);
+            if (queryStart == HttpUrlScanner.NOT_SIMPLE || !canAppendParameters(builder, queryStart)) {
+                return UriComponentsBuilder.fromHttpUrl(builder.toString())
+                        .queryParams(serializePageable())
+                        .queryParams(serializeQueryParams())
+                        .build(true)
+                        .toUri();
             }
-            if (elements.isEmpty()) {
-                elements.add(preFormatted);
-            }
-            if (args.length != (elements.size() - 1) / 2) {
-                System.out.println(elements);
+            final char separator = appendPageable(builder, queryStart == HttpUrlScanner.NO_QUERY ? '?' : '&');
+            appendQueryParams(builder, separator);
+            return URI.create(builder.toString());
+        }
+
+        private StringBuilder expandUrl(Object... args) {
+            final UrlTemplate template = getTemplate(base);
+            if (args.length != template.getVariableCount()) {
                 throw new IllegalArgumentException(
-                        "Failed format '" + preFormatted + "', " +
-                                "expected " + ((elements.size() - 1) / 2) + " arguments, " +
+                        "Failed format '" + template.getSource() + "', " +
+                                "expected " + template.getVariableCount() + " arguments, " +
                                 "" + args.length + " provided"
                 );
             }
-            Iterator<String> iterator = Arrays.asList(serializeArgs(args)).iterator();
-            return elements.stream()
-                    .map(element ->
-                            element == null ? iterator.next() : element
-                    )
-                    .collect(Collectors.joining());
+            final StringBuilder builder = new StringBuilder(template.getSource().length() + 16 * args.length + 64);
+            builder.append(template.getLiteral(0));
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] != null) {
+                    UrlEncoder.encode(args[i].toString(), builder);
+                }
+                builder.append(template.getLiteral(i + 1));
+            }
+            return builder;
         }
 
-        private String[] serializeArgs(Object... args) {
-            return Stream.of(args)
-                    .map(object -> object == null ? "" : urlEncode(object.toString()))
-                    .collect(Collectors.toList())
-                    .toArray(new String[0]);
+        private boolean canAppendParameters(CharSequence url, int queryStart) {
+            if (pageable != null && (HttpUrlScanner.hasQueryParam(url, queryStart, "page")
+                    || HttpUrlScanner.hasQueryParam(url, queryStart, "size")
+                    || HttpUrlScanner.hasQueryParam(url, queryStart, "sort"))) {
+                return false;
+            }
+            if (queryParams != null) {
+                for (Map.Entry<String, List<String>> entry : queryParams.entrySet()) {
+                    final String name = urlEncode(entry.getKey());
+                    if (name.isEmpty() || entry.getValue() == null || entry.getValue().isEmpty()
+                            || HttpUrlScanner.hasQueryParam(url, queryStart, name)
+                            || (pageable != null && (name.equals("page") || name.equals("size") || name.equals("sort")))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private char appendPageable(StringBuilder builder, char separator) {
+            if (pageable == null) {
+                return separator;
+            }
+            builder.append(separator).append("page=").append(pageable.getPageNumber())
+                    .append("&size=").append(pageable.getPageSize());
+            if (pageable.getSort() != null) {
+                for (Sort.Order order : pageable.getSort()) {
+                    UrlEncoder.encode(order.getProperty(), builder.append("&sort="))
+                            .append(order.isAscending() ? ",asc" : ",desc");
+                }
+            }
+            return '&';
+        }
+
+        private void appendQueryParams(StringBuilder builder, char separator) {
+            if (queryParams == null || queryParams.isEmpty()) {
+                return;
+            }
+            if (queryParams.size() == 1) {
+                final Map.Entry<String, List<String>> entry = queryParams.entrySet().iterator().next();
+                appendQueryParam(builder, separator, urlEncode(entry.getKey()), entry.getValue());
+                return;
+            }
+            // Keep the order of the map built by serializeQueryParams, values are encoded while appended
+            final Map<String, List<String>> ordered = collectByEncodedName(values -> values);
+            for (Map.Entry<String, List<String>> entry : ordered.entrySet()) {
+                separator = appendQueryParam(builder, separator, entry.getKey(), entry.getValue());
+            }
+        }
+
+        private char appendQueryParam(StringBuilder builder, char separator, String name, List<String> values) {
+            for (String value : values) {
+                builder.append(separator).append(name).append('=');
+                if (value != null) {
+                    UrlEncoder.encode(value, builder);
+                }
+                separator = '&';
+            }
+            return separator;
         }
 
         private MultiValueMap<String, String> serializePageable() {
@@ -186,26 +242,26 @@ public class Endpoint {
         private MultiValueMap<String, String> serializeQueryParams() {
             if (this.queryParams == null)
                 return null;
-            return new LinkedMultiValueMap<>(
-                    queryParams.entrySet().stream()
-                            .collect(Collectors.toMap(
-                                    entry -> urlEncode(entry.getKey()),
-                                    entry -> entry.getValue().stream()
-                                            .map(this::urlEncode)
-                                            .collect(Collectors.toList())
-                            ))
-            );
+            return new LinkedMultiValueMap<>(collectByEncodedName(values -> values.stream()
+                    .map(this::urlEncode)
+                    .collect(Collectors.toList())
+            ));
+        }
+
+        /**
+         * Both URI building paths must collect the parameters the same way: the iteration order of the resulting
+         * HashMap depends on how the entries were inserted.
+         */
+        private Map<String, List<String>> collectByEncodedName(Function<List<String>, List<String>> valueMapper) {
+            return queryParams.entrySet().stream()
+                    .collect(Collectors.toMap(
+                            entry -> urlEncode(entry.getKey()),
+                            entry -> valueMapper.apply(entry.getValue())
+                    ));
         }
 
         private String urlEncode(String str) {
-            try {
-                if (str != null) {
-                    return URLEncoder.encode(str, UTF_8.name()).replaceAll("\\+", "%20");
-                }
-                return "";
-            } catch (UnsupportedEncodingException e) {
-                throw new IllegalStateException("Should not happen", e);
-            }
+            return str == null ? "" : UrlEncoder.encode(str);
         }
     }
 }
\ No newline at end of file
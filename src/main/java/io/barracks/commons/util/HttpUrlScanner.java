@@ -0,0 +1,202 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.util;
+
+/**
+ * Checks whether an expanded URL would come out of {@code UriComponentsBuilder.fromHttpUrl(url).build(true)}
+ * unchanged, so that it can be turned into a {@link java.net.URI} directly.
+ * <p>
+ * Anything unusual (upper case scheme, user info, IPv6 host, empty port, "//" in the path, empty or
+ * duplicated query parameters, characters that would be rejected...) is reported as not simple and must
+ * go through {@code UriComponentsBuilder}.
+ */
+final class HttpUrlScanner {
+
+    static final int NOT_SIMPLE = -2;
+    static final int NO_QUERY = -1;
+
+    private static final boolean[] HOST_CHARACTERS = new boolean[128];
+    private static final boolean[] PATH_CHARACTERS = new boolean[128];
+    private static final boolean[] QUERY_CHARACTERS = new boolean[128];
+
+    static {
+        allow(HOST_CHARACTERS, "-.");
+        allow(PATH_CHARACTERS, "-._~!$&'()*+,;=:@/");
+        allow(QUERY_CHARACTERS, "-._~!$'()*+,;:@/?");
+    }
+
+    private HttpUrlScanner() {
+    }
+
+    /**
+     * @return the index of the '?' starting the query, {@link #NO_QUERY} if there is none, or
+     * {@link #NOT_SIMPLE} if the URL must be handled by {@code UriComponentsBuilder}.
+     */
+    static int scan(CharSequence url) {
+        final int length = url.length();
+        int i;
+        if (startsWith(url, "https://")) {
+            i = 8;
+        } else if (startsWith(url, "http://")) {
+            i = 7;
+        } else {
+            return NOT_SIMPLE;
+        }
+
+        final int hostStart = i;
+        while (i < length && isAllowed(HOST_CHARACTERS, url.charAt(i))) {
+            i++;
+        }
+        if (i == hostStart) {
+            return NOT_SIMPLE;
+        }
+        if (i < length && url.charAt(i) == ':') {
+            final int portStart = ++i;
+            while (i < length && url.charAt(i) >= '0' && url.charAt(i) <= '9') {
+                i++;
+            }
+            if (i == portStart) {
+                return NOT_SIMPLE;
+            }
+        }
+        if (i < length && url.charAt(i) != '/' && url.charAt(i) != '?') {
+            return NOT_SIMPLE;
+        }
+
+        char previous = 0;
+        while (i < length && url.charAt(i) != '?') {
+            final char c = url.charAt(i);
+            if (c == '%') {
+                if (!isEscapeSequence(url, i)) {
+                    return NOT_SIMPLE;
+                }
+                i += 3;
+            } else if (isAllowed(PATH_CHARACTERS, c) && !(c == '/' && previous == '/')) {
+                i++;
+            } else {
+                return NOT_SIMPLE;
+            }
+            previous = c;
+        }
+        if (i == length) {
+            return NO_QUERY;
+        }
+
+        final int queryStart = i;
+        i++;
+        do {
+            final int nameStart = i;
+            while (i < length && url.charAt(i) != '=' && url.charAt(i) != '&') {
+                if (!isQueryCharacter(url, i)) {
+                    return NOT_SIMPLE;
+                }
+                i += url.charAt(i) == '%' ? 3 : 1;
+            }
+            final int nameEnd = i;
+            if (nameStart == nameEnd || indexOfParam(url, queryStart, nameStart, url, nameStart, nameEnd) >= 0) {
+                return NOT_SIMPLE;
+            }
+            if (i < length && url.charAt(i) == '=') {
+                i++;
+                while (i < length && url.charAt(i) != '&') {
+                    if (url.charAt(i) == '=' || !isQueryCharacter(url, i)) {
+                        return NOT_SIMPLE;
+                    }
+                    i += url.charAt(i) == '%' ? 3 : 1;
+                }
+            }
+        } while (i++ < length);
+        return queryStart;
+    }
+
+    static boolean hasQueryParam(CharSequence url, int queryStart, CharSequence name) {
+        return queryStart >= 0 && indexOfParam(url, queryStart, url.length(), name, 0, name.length()) >= 0;
+    }
+
+    private static int indexOfParam(CharSequence url, int queryStart, int queryEnd,
+                                    CharSequence name, int nameStart, int nameEnd) {
+        final int nameLength = nameEnd - nameStart;
+        int paramStart = queryStart + 1;
+        while (paramStart < queryEnd) {
+            int paramEnd = paramStart;
+            while (paramEnd < queryEnd && url.charAt(paramEnd) != '=' && url.charAt(paramEnd) != '&') {
+                paramEnd++;
+            }
+            if (paramEnd - paramStart == nameLength && regionMatches(url, paramStart, name, nameStart, nameLength)) {
+                return paramStart;
+            }
+            while (paramEnd < queryEnd && url.charAt(paramEnd) != '&') {
+                paramEnd++;
+            }
+            paramStart = paramEnd + 1;
+        }
+        return -1;
+    }
+
+    private static boolean isQueryCharacter(CharSequence url, int index) {
+        final char c = url.charAt(index);
+        return c == '%' ? isEscapeSequence(url, index) : isAllowed(QUERY_CHARACTERS, c);
+    }
+
+    private static boolean isEscapeSequence(CharSequence url, int index) {
+        return index + 2 < url.length() && isHexDigit(url.charAt(index + 1)) && isHexDigit(url.charAt(index + 2));
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isAllowed(boolean[] table, char c) {
+        return c < 128 && table[c];
+    }
+
+    private static boolean startsWith(CharSequence url, String prefix) {
+        return url.length() >= prefix.length() && regionMatches(url, 0, prefix, 0, prefix.length());
+    }
+
+    private static boolean regionMatches(CharSequence left, int leftStart, CharSequence right, int rightStart, int length) {
+        for (int i = 0; i < length; i++) {
+            if (left.charAt(leftStart + i) != right.charAt(rightStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void allow(boolean[] table, String characters) {
+        for (char c = 'a'; c <= 'z'; c++) {
+            table[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            table[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            table[c] = true;
+        }
+        for (int i = 0; i < characters.length(); i++) {
+            table[characters.charAt(i)] = true;
+        }
+    }
+}
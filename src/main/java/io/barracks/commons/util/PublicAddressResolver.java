@@ -62,6 +62,10 @@ public class PublicAddressResolver {
             this.ip = ip;
         }
 
+        public String getIp() {
+            return ip;
+        }
+
         public InetAddress toInetAddress() throws UnknownHostException {
             return InetAddress.getByName(ip);
         }
@@ -32,4 +32,8 @@ public class PublicIpResolverException extends RuntimeException {
         super("Impossible to resolve public ip", cause);
     }
 
+    public PublicIpResolverException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
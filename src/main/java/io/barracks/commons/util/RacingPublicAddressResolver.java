@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.util;
+
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Queries all the IP resolution services at the same time and returns the first valid answer.
+ * <p>
+ * Each request is bounded by connect and read timeouts, and the whole resolution by the same deadline. Requests still
+ * running when an answer is found are cancelled.
+ */
+public class RacingPublicAddressResolver extends PublicAddressResolver {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+    private final List<String> serviceUrls;
+    private final long timeoutMillis;
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor = Executors.newCachedThreadPool(task -> {
+        final Thread thread = new Thread(task, "public-address-resolver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RacingPublicAddressResolver() {
+        this(Arrays.asList(IP_RESOLUTION_SERVICE_1_URL, IP_RESOLUTION_SERVICE_2_URL), DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public RacingPublicAddressResolver(List<String> serviceUrls, long timeout, TimeUnit timeoutUnit) {
+        if (serviceUrls == null || serviceUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one IP resolution service is required");
+        }
+        this.serviceUrls = new ArrayList<>(serviceUrls);
+        this.timeoutMillis = timeoutUnit.toMillis(timeout);
+        final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+        requestFactory.setReadTimeout((int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public InetAddress resolve() {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        final CompletionService<InetAddress> completionService = new ExecutorCompletionService<>(executor);
+        final List<Future<InetAddress>> futures = new ArrayList<>(serviceUrls.size());
+        Exception lastFailure = null;
+        try {
+            for (String serviceUrl : serviceUrls) {
+                futures.add(completionService.submit(() -> query(serviceUrl)));
+            }
+            for (int pending = futures.size(); pending > 0; pending--) {
+                final Future<InetAddress> future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    throw new PublicIpResolverException("No IP resolution service answered within " + timeoutMillis + " ms", lastFailure);
+                }
+                try {
+                    return future.get();
+                } catch (ExecutionException e) {
+                    lastFailure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+            throw new PublicIpResolverException("All IP resolution services failed", lastFailure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PublicIpResolverException("Interrupted while resolving public ip", e);
+        } finally {
+            for (Future<InetAddress> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private InetAddress query(String serviceUrl) throws UnknownHostException {
+        final PublicAddress address = restTemplate.getForObject(serviceUrl, PublicAddress.class);
+        if (address == null || address.getIp() == null || address.getIp().isEmpty()) {
+            throw new UnknownHostException("No ip returned by " + serviceUrl);
+        }
+        return address.toInetAddress();
+    }
+}
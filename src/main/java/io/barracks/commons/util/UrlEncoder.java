@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.util;
+
+/**
+ * Percent-encodes strings as UTF-8 with the same output as
+ * {@code URLEncoder.encode(value, "UTF-8").replaceAll("\\+", "%20")}, without the intermediate strings.
+ */
+public final class UrlEncoder {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] SAFE_CHARACTERS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            SAFE_CHARACTERS[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            SAFE_CHARACTERS[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            SAFE_CHARACTERS[c] = true;
+        }
+        SAFE_CHARACTERS['-'] = true;
+        SAFE_CHARACTERS['.'] = true;
+        SAFE_CHARACTERS['_'] = true;
+        SAFE_CHARACTERS['*'] = true;
+    }
+
+    private UrlEncoder() {
+    }
+
+    public static String encode(String value) {
+        final int firstUnsafe = indexOfUnsafe(value);
+        if (firstUnsafe < 0) {
+            return value;
+        }
+        final StringBuilder builder = new StringBuilder(value.length() + 16);
+        builder.append(value, 0, firstUnsafe);
+        encodeFrom(value, firstUnsafe, builder);
+        return builder.toString();
+    }
+
+    public static StringBuilder encode(CharSequence value, StringBuilder builder) {
+        final int firstUnsafe = indexOfUnsafe(value);
+        if (firstUnsafe < 0) {
+            return builder.append(value);
+        }
+        builder.append(value, 0, firstUnsafe);
+        encodeFrom(value, firstUnsafe, builder);
+        return builder;
+    }
+
+    private static int indexOfUnsafe(CharSequence value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 128 || !SAFE_CHARACTERS[c]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void encodeFrom(CharSequence value, int start, StringBuilder builder) {
+        final int length = value.length();
+        for (int i = start; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 128) {
+                if (SAFE_CHARACTERS[c]) {
+                    builder.append(c);
+                } else {
+                    appendEscaped(c, builder);
+                }
+            } else if (c < 0x800) {
+                appendEscaped(0xC0 | (c >> 6), builder);
+                appendEscaped(0x80 | (c & 0x3F), builder);
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    appendEscaped(0xF0 | (codePoint >> 18), builder);
+                    appendEscaped(0x80 | ((codePoint >> 12) & 0x3F), builder);
+                    appendEscaped(0x80 | ((codePoint >> 6) & 0x3F), builder);
+                    appendEscaped(0x80 | (codePoint & 0x3F), builder);
+                } else {
+                    // Unpaired surrogates are replaced by '?', like String.getBytes(UTF_8) does
+                    appendEscaped('?', builder);
+                }
+            } else {
+                appendEscaped(0xE0 | (c >> 12), builder);
+                appendEscaped(0x80 | ((c >> 6) & 0x3F), builder);
+                appendEscaped(0x80 | (c & 0x3F), builder);
+            }
+        }
+    }
+
+    private static void appendEscaped(int b, StringBuilder builder) {
+        builder.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
+}
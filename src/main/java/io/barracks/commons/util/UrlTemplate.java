@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class UrlTemplate {
+
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\p{Alnum}*}");
+
+    private final String source;
+    private final String[] literals;
+
+    private UrlTemplate(String source, String[] literals) {
+        this.source = source;
+        this.literals = literals;
+    }
+
+    static UrlTemplate compile(String source) {
+        final Matcher matcher = VARIABLE_PATTERN.matcher(source);
+        final List<String> literals = new ArrayList<>();
+        int searchIdx = 0;
+        while (matcher.find()) {
+            literals.add(source.substring(searchIdx, matcher.start()));
+            searchIdx = matcher.end();
+        }
+        literals.add(source.substring(searchIdx));
+        return new UrlTemplate(source, literals.toArray(new String[literals.size()]));
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    int getVariableCount() {
+        return literals.length - 1;
+    }
+
+    String getLiteral(int index) {
+        return literals[index];
+    }
+}
@@ -36,12 +36,15 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.*;
 import java.nio.charset.Charset;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doReturn;
@@ -103,6 +106,71 @@ public class DefaultServiceClientExceptionHandlerTest {
         assertThat(result.getType().toString()).isEqualTo(object.getAsString("type"));
     }
 
+    @Test
+    public void parseException_whenFormatted_shouldOnlyKeepWhitelistedProperties() throws Exception {
+        // Given
+        final String body = "{\"status\":400,\"title\":\"Bad\",\"errors\":[{\"field\":\"date\"}],\"trace\":{\"deep\":[1,2,3]}}";
+        final BarracksServiceClientException exception = new TestException(new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Bad Request", body.getBytes("UTF-8"), Charset.forName("UTF-8")));
+
+        // When
+        final ErrorMessage result = handler.createBody(exception, request);
+
+        // Then
+        assertThat(result).isInstanceOf(ExtendedErrorMessage.class);
+        assertThat(((ExtendedErrorMessage) result).any()).containsOnlyKeys("errors");
+        assertThat(((ExtendedErrorMessage) result).any().get("errors").get(0).get("field").asText()).isEqualTo("date");
+    }
+
+    @Test
+    public void parseException_whenKnownPropertyIsNotScalar_shouldUseResponseBody() throws Exception {
+        // Given
+        final String body = "{\"detail\":{\"status\":500,\"code\":\"E1\"},\"status\":400,\"title\":\"Bad\"}";
+        final BarracksServiceClientException exception = new TestException(new HttpClientErrorException(HttpStatus.CONFLICT, "Conflict", body.getBytes("UTF-8"), Charset.forName("UTF-8")));
+        doReturn("/devices").when(request).getRequestURI();
+
+        // When
+        final ErrorMessage result = handler.createBody(exception, request);
+
+        // Then
+        assertThat(result).isNotInstanceOf(ExtendedErrorMessage.class);
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.CONFLICT.value());
+        assertThat(result.getTitle()).isEqualTo("Conflict");
+        assertThat(result.getDetail()).isEqualTo(body);
+    }
+
+    @Test
+    public void parseException_whenBodyIsTruncated_shouldUseResponseBody() throws Exception {
+        // Given
+        final String body = "{\"status\":400,\"title\":\"Bad\"";
+        final BarracksServiceClientException exception = new TestException(new HttpClientErrorException(HttpStatus.CONFLICT, "Conflict", body.getBytes("UTF-8"), Charset.forName("UTF-8")));
+        doReturn("/devices").when(request).getRequestURI();
+
+        // When
+        final ErrorMessage result = handler.createBody(exception, request);
+
+        // Then
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.CONFLICT.value());
+        assertThat(result.getDetail()).isEqualTo(body);
+    }
+
+    @Test
+    public void parseException_whenBodyIsTooLarge_shouldNotParseAndTruncateDetail() throws Exception {
+        // Given
+        final DefaultServiceClientExceptionHandler limitedHandler = new DefaultServiceClientExceptionHandler(16, Collections.emptySet());
+        limitedHandler.setMessageSource(new TestConfiguration().httpErrorMessageSource());
+        final String body = "{\"status\":400,\"title\":\"Bad\",\"detail\":\"too long\"}";
+        final BarracksServiceClientException exception = new TestException(new HttpClientErrorException(HttpStatus.BAD_GATEWAY, "Bad Gateway", body.getBytes("UTF-8"), Charset.forName("UTF-8")));
+        doReturn("/devices").when(request).getRequestURI();
+
+        // When
+        final ErrorMessage result = limitedHandler.createBody(exception, request);
+
+        // Then
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.BAD_GATEWAY.value());
+        assertThat(result.getTitle()).isEqualTo("Bad Gateway");
+        assertThat(result.getDetail()).isEqualTo(body.substring(0, 16));
+    }
+
     @Test
     public void extendedErrorMessage_shouldConvertBothWays() throws Exception {
         // Given
@@ -117,6 +185,23 @@ public class DefaultServiceClientExceptionHandlerTest {
         assertThat(result).isEqualTo(original);
     }
 
+    @Test
+    public void handleException_whenStackTraceIsNotWritable_shouldUseCauseStatus() throws UnsupportedEncodingException {
+        // Given
+        final HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        final String body = "Service Unavailable";
+        final BarracksServiceClientException exception = new StacklessTestException(new HttpServerErrorException(status, status.getReasonPhrase(), body.getBytes("UTF-8"), Charset.forName("UTF-8")));
+        doReturn("http://not.barracks.io/service/method").when(request).getRequestURI();
+
+        // When
+        final ResponseEntity<ErrorMessage> result = handler.handleException(exception, request);
+
+        // Then
+        assertThat(exception.getStackTrace()).isEmpty();
+        assertThat(result.getStatusCode()).isEqualTo(status);
+        assertThat(result.getBody().getDetail()).isEqualTo(body);
+    }
+
     private JSONObject getJsonFromResource(String name) throws IOException, ParseException {
         final String fileName = getClass().getSimpleName() + "-" + name + ".json";
         try (
@@ -137,6 +222,13 @@ public class DefaultServiceClientExceptionHandlerTest {
         }
     }
 
+    private static final class StacklessTestException extends BarracksServiceClientException {
+
+        public StacklessTestException(HttpStatusCodeException cause) {
+            super(cause, false);
+        }
+    }
+
     private static class TestConfiguration extends ExceptionHandlingConfiguration {
         @Override
         protected String getBaseName() {
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import cz.jirutka.spring.exhandler.messages.ErrorMessage;
+import cz.jirutka.spring.exhandler.messages.ValidationErrorMessage;
+import org.junit.Test;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ErrorMessageCodecTest {
+
+    @Test
+    public void codec_whenAfterburnerRequested_shouldRegisterItOnACopyOfTheMapper() {
+        // Given
+        final ObjectMapper mapper = new ObjectMapper();
+
+        // When
+        final ErrorMessageCodec codec = new ErrorMessageCodec(mapper, true);
+
+        // Then
+        assertThat(ErrorMessageCodec.isAfterburnerAvailable()).isTrue();
+        assertThat(codec.isAfterburnerEnabled()).isTrue();
+        assertThat(codec.getObjectMapper()).isNotSameAs(mapper);
+    }
+
+    @Test
+    public void codec_whenAfterburnerNotRequested_shouldShareTheMapper() {
+        // Given
+        final ObjectMapper mapper = new ObjectMapper();
+
+        // When
+        final ErrorMessageCodec codec = new ErrorMessageCodec(mapper, false);
+
+        // Then
+        assertThat(codec.isAfterburnerEnabled()).isFalse();
+        assertThat(codec.getObjectMapper()).isSameAs(mapper);
+    }
+
+    @Test
+    public void codec_whenDefault_shouldUseTheSpringMapperDefaults() throws Exception {
+        // When
+        final ErrorMessageCodec codec = new ErrorMessageCodec();
+
+        // Then
+        assertThat(codec.isAfterburnerEnabled()).isFalse();
+        assertThat(codec.getObjectMapper().isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)).isFalse();
+        final ErrorMessage result = codec.getReader(ErrorMessage.class).readValue("{\"status\":400,\"unknown\":true}");
+        assertThat(result.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    public void write_whenExtendedErrorMessage_shouldRoundTrip() throws Exception {
+        // Given
+        final ErrorMessageCodec codec = new ErrorMessageCodec();
+        final ExtendedErrorMessage message = new ExtendedErrorMessage();
+        message.setType(URI.create("http://barracks.io/errors/test"));
+        message.setTitle("Bad Request");
+        message.setStatus(400);
+        message.setDetail("Detail");
+        message.setInstance(URI.create("/test"));
+        message.set("errors", TextNode.valueOf("value"));
+
+        // When
+        final byte[] bytes = codec.write(message);
+        final ExtendedErrorMessage result = codec.getReader(ExtendedErrorMessage.class).readValue(bytes);
+
+        // Then
+        assertThat(result).isEqualTo(message);
+    }
+
+    @Test
+    public void write_whenValidationErrorMessage_shouldWriteErrors() throws Exception {
+        // Given
+        final ErrorMessageCodec codec = new ErrorMessageCodec();
+        final ValidationErrorMessage message = new ValidationErrorMessage();
+        message.setStatus(400);
+        message.addError("field", "rejected", "Invalid");
+
+        // When
+        final JsonNode result = codec.getObjectMapper().readTree(codec.write(message));
+
+        // Then
+        assertThat(result.get("status").asInt()).isEqualTo(400);
+        assertThat(result.get("errors").get(0).get("field").asText()).isEqualTo("field");
+        assertThat(result.get("errors").get(0).get("message").asText()).isEqualTo("Invalid");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getReader_whenValidationErrorMessage_shouldThrowException() {
+        // Given
+        final ErrorMessageCodec codec = new ErrorMessageCodec();
+
+        // When
+        codec.getReader(ValidationErrorMessage.class);
+    }
+
+    @Test
+    public void getHttpMessageConverters_shouldWriteErrorMessagesWithTheCodec() throws Exception {
+        // Given
+        final ErrorMessageCodec codec = new ErrorMessageCodec();
+        final ErrorMessage message = new ErrorMessage();
+        message.setStatus(500);
+        message.setTitle("Internal Server Error");
+        final MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        // When
+        final List<HttpMessageConverter<?>> converters = codec.getHttpMessageConverters();
+        final MappingJackson2HttpMessageConverter converter = (MappingJackson2HttpMessageConverter) converters.stream()
+                .filter(c -> c instanceof MappingJackson2HttpMessageConverter)
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+        converter.write(message, null, output);
+
+        // Then
+        assertThat(converter.getObjectMapper()).isSameAs(codec.getObjectMapper());
+        assertThat(output.getBodyAsBytes()).isEqualTo(codec.write(message));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import cz.jirutka.spring.exhandler.RestHandlerExceptionResolverBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.MessageSource;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrecomputedMessageSourceTest {
+
+    private static final String COMMON = "classpath:/io/barracks/commons/configuration/messages";
+    private static final String CHILD = "classpath:/io/barracks/commons/configuration/PrecomputedMessageSourceTest-messages";
+
+    private PrecomputedMessageSource messageSource;
+
+    @Before
+    public void setUp() {
+        messageSource = PrecomputedMessageSource.load(
+                new DefaultResourceLoader(), "UTF-8", Locale.ROOT,
+                RestHandlerExceptionResolverBuilder.DEFAULT_MESSAGES_BASENAME, COMMON, CHILD, "classpath:/missing"
+        );
+    }
+
+    @Test
+    public void getMessage_whenCodeIsInChildBundle_shouldOverrideParentBundles() {
+        // When
+        final String title = messageSource.getMessage("org.springframework.validation.BindException.title", null, null, Locale.FRENCH);
+        final String type = messageSource.getMessage("org.springframework.validation.BindException.type", null, null, Locale.FRENCH);
+        final String notFound = messageSource.getMessage("org.springframework.web.servlet.NoHandlerFoundException.title", null, null, Locale.FRENCH);
+
+        // Then
+        assertThat(title).isEqualTo("Invalid Parameters");
+        assertThat(type).isEqualTo("http://httpstatus.es/400");
+        assertThat(notFound).isEqualTo("Not Found");
+    }
+
+    @Test
+    public void getMessage_whenArguments_shouldFormatWithPrecompiledPattern() {
+        // When
+        final String withArguments = messageSource.getMessage("io.barracks.test.count", new Object[]{3}, Locale.ENGLISH);
+        final String withoutArguments = messageSource.getMessage("io.barracks.test.count", null, Locale.ENGLISH);
+
+        // Then
+        assertThat(withArguments).isEqualTo("There are 3 errors.");
+        assertThat(withoutArguments).isEqualTo("There are {0} errors.");
+    }
+
+    @Test
+    public void getMessage_whenCodeIsMissing_shouldUseParentThenDefaultMessage() {
+        // Given
+        final StaticMessageSource parent = new StaticMessageSource();
+        parent.addMessage("parent.code", Locale.ENGLISH, "From parent");
+
+        // When
+        final String withoutParent = messageSource.getMessage("parent.code", null, "Default", Locale.ENGLISH);
+        messageSource.setParentMessageSource(parent);
+        final String withParent = messageSource.getMessage("parent.code", null, "Default", Locale.ENGLISH);
+
+        // Then
+        assertThat(withoutParent).isEqualTo("Default");
+        assertThat(withParent).isEqualTo("From parent");
+    }
+
+    @Test(expected = NoSuchMessageException.class)
+    public void getMessage_whenCodeIsMissingAndNoDefault_shouldThrowException() {
+        // When
+        messageSource.getMessage("missing.code", null, Locale.ENGLISH);
+    }
+
+    @Test
+    public void getMessage_whenResolvable_shouldTryEachCode() {
+        // Given
+        final DefaultMessageSourceResolvable resolvable = new DefaultMessageSourceResolvable(
+                new String[]{"missing.code", "io.barracks.test.count"}, new Object[]{2}
+        );
+
+        // When
+        final String result = messageSource.getMessage(resolvable, Locale.ENGLISH);
+
+        // Then
+        assertThat(result).isEqualTo("There are 2 errors.");
+    }
+
+    @Test
+    public void httpErrorMessageSource_whenPrecomputed_shouldResolveCommonAndDefaultMessages() {
+        // Given
+        final ExceptionHandlingConfiguration configuration = new ExceptionHandlingConfiguration() {
+            @Override
+            protected boolean isPrecomputedMessageSource() {
+                return true;
+            }
+        };
+
+        // When
+        final MessageSource result = configuration.httpErrorMessageSource();
+
+        // Then
+        assertThat(result).isInstanceOf(PrecomputedMessageSource.class);
+        assertThat(result.getMessage("org.springframework.validation.BindException.title", null, Locale.ENGLISH)).isEqualTo("Invalid Request Parameters");
+        assertThat(result.getMessage("org.springframework.web.servlet.NoHandlerFoundException.title", null, Locale.ENGLISH)).isEqualTo("Not Found");
+        assertThat(configuration.restExceptionResolver().build()).isNotNull();
+    }
+}
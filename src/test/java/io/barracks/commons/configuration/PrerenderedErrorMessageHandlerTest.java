@@ -0,0 +1,191 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.configuration;
+
+import cz.jirutka.spring.exhandler.handlers.ErrorMessageRestExceptionHandler;
+import cz.jirutka.spring.exhandler.messages.ErrorMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrerenderedErrorMessageHandlerTest {
+
+    private static final String PREFIX = IllegalArgumentException.class.getName() + ".";
+
+    private final ErrorMessageCodec codec = new ErrorMessageCodec();
+    private StaticMessageSource messageSource;
+
+    @Before
+    public void setUp() {
+        messageSource = new StaticMessageSource();
+        messageSource.addMessage(PREFIX + "type", Locale.ENGLISH, "http://httpstatus.es/400");
+        messageSource.addMessage(PREFIX + "title", Locale.ENGLISH, "Bad Request");
+        messageSource.addMessage(PREFIX + "detail", Locale.ENGLISH, "The request is invalid.");
+        LocaleContextHolder.setLocale(Locale.ENGLISH);
+    }
+
+    @After
+    public void tearDown() {
+        LocaleContextHolder.resetLocaleContext();
+    }
+
+    @Test
+    public void createBody_whenMessagesAreStatic_shouldReuseThePayload() throws Exception {
+        // Given
+        final ErrorPayloadTemplateCache cache = new ErrorPayloadTemplateCache();
+        final PrerenderedErrorMessageHandler<IllegalArgumentException> handler = handler(cache);
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/devices");
+
+        // When
+        final ErrorMessage first = handler.createBody(new IllegalArgumentException("first"), request);
+        final ErrorMessage second = handler.createBody(new IllegalArgumentException("second"), request);
+
+        // Then
+        final ErrorMessage expected = reference().createBody(new IllegalArgumentException(), request);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(first).isInstanceOf(PrerenderedErrorMessage.class).isEqualTo(expected);
+        assertThat(second).isEqualTo(expected);
+        assertThat(write(second)).isEqualTo(codec.write(expected));
+    }
+
+    @Test
+    public void createBody_whenInstanceIsInterpolated_shouldSpliceTheEscapedInstance() throws Exception {
+        // Given
+        messageSource.addMessage(PREFIX + "instance", Locale.ENGLISH, "#{req.requestURI}");
+        final PrerenderedErrorMessageHandler<IllegalArgumentException> handler = handler(new ErrorPayloadTemplateCache());
+        final MockHttpServletRequest first = new MockHttpServletRequest("GET", "/devices");
+        final MockHttpServletRequest second = new MockHttpServletRequest("GET", "/devices/%22quoted%22");
+
+        // When
+        final ErrorMessage firstResult = handler.createBody(new IllegalArgumentException(), first);
+        final ErrorMessage secondResult = handler.createBody(new IllegalArgumentException(), second);
+
+        // Then
+        final ErrorMessage expected = reference().createBody(new IllegalArgumentException(), second);
+        assertThat(firstResult.getInstance().toString()).isEqualTo("/devices");
+        assertThat(secondResult).isEqualTo(expected);
+        assertThat(write(secondResult)).isEqualTo(codec.write(expected));
+    }
+
+    @Test
+    public void createBody_whenDetailIsInterpolated_shouldNotPrerender() throws Exception {
+        // Given
+        messageSource.addMessage(PREFIX + "detail", Locale.ENGLISH, "Invalid: #{ex.message}");
+        final PrerenderedErrorMessageHandler<IllegalArgumentException> handler = handler(new ErrorPayloadTemplateCache());
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/devices");
+
+        // When
+        final ErrorMessage first = handler.createBody(new IllegalArgumentException("first"), request);
+        final ErrorMessage second = handler.createBody(new IllegalArgumentException("second"), request);
+
+        // Then
+        assertThat(first).isNotInstanceOf(PrerenderedErrorMessage.class);
+        assertThat(first.getDetail()).isEqualTo("Invalid: first");
+        assertThat(second.getDetail()).isEqualTo("Invalid: second");
+    }
+
+    @Test
+    public void createBody_whenCacheIsFull_shouldStillRenderOtherLocales() throws Exception {
+        // Given
+        messageSource.addMessage(PREFIX + "title", Locale.FRENCH, "Requete invalide");
+        final ErrorPayloadTemplateCache cache = new ErrorPayloadTemplateCache(1);
+        final PrerenderedErrorMessageHandler<IllegalArgumentException> handler = handler(cache);
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/devices");
+        handler.createBody(new IllegalArgumentException(), request);
+        LocaleContextHolder.setLocale(Locale.FRENCH);
+
+        // When
+        final ErrorMessage result = handler.createBody(new IllegalArgumentException(), request);
+
+        // Then
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(result.getTitle()).isEqualTo("Requete invalide");
+    }
+
+    @Test
+    public void createBody_whenWrittenByAnyConverter_shouldRenderLikeThePlainMessage() throws Exception {
+        // Given
+        final PrerenderedErrorMessageHandler<IllegalArgumentException> handler = handler(new ErrorPayloadTemplateCache());
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/devices");
+        final ErrorMessage result = handler.createBody(new IllegalArgumentException(), request);
+        final ErrorMessage plain = new ErrorMessage(result);
+
+        for (HttpMessageConverter<?> converter : codec.getHttpMessageConverters()) {
+            if (!converter.canWrite(ErrorMessage.class, null)) {
+                continue;
+            }
+            // When
+            final byte[] written = write(converter, result);
+
+            // Then
+            assertThat(converter.canWrite(result.getClass(), null)).as(converter.getClass().getName()).isTrue();
+            assertThat(written).as(converter.getClass().getName()).isEqualTo(write(converter, plain));
+        }
+    }
+
+    private PrerenderedErrorMessageHandler<IllegalArgumentException> handler(ErrorPayloadTemplateCache cache) {
+        final PrerenderedErrorMessageHandler<IllegalArgumentException> handler = new PrerenderedErrorMessageHandler<>(
+                IllegalArgumentException.class, HttpStatus.BAD_REQUEST, codec, cache
+        );
+        handler.setMessageSource(messageSource);
+        return handler;
+    }
+
+    private ErrorMessageRestExceptionHandler<IllegalArgumentException> reference() {
+        final ErrorMessageRestExceptionHandler<IllegalArgumentException> handler = new ErrorMessageRestExceptionHandler<>(
+                IllegalArgumentException.class, HttpStatus.BAD_REQUEST
+        );
+        handler.setMessageSource(messageSource);
+        return handler;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static byte[] write(HttpMessageConverter<?> converter, ErrorMessage message) throws Exception {
+        final MockHttpOutputMessage output = new MockHttpOutputMessage();
+        ((HttpMessageConverter<Object>) converter).write(message, null, output);
+        return output.getBodyAsBytes();
+    }
+
+    private byte[] write(ErrorMessage message) throws Exception {
+        final MockHttpOutputMessage output = new MockHttpOutputMessage();
+        for (HttpMessageConverter<?> converter : codec.getHttpMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                ((MappingJackson2HttpMessageConverter) converter).write(message, null, output);
+            }
+        }
+        return output.getBodyAsBytes();
+    }
+}
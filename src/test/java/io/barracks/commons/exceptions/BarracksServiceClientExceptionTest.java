@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.exceptions;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BarracksServiceClientExceptionTest {
+
+    @Test
+    public void constructor_whenStackTraceIsWritable_shouldCaptureIt() {
+        // Given
+        final HttpStatusCodeException cause = new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+
+        // When
+        final BarracksServiceClientException exception = new TestException(cause, true);
+
+        // Then
+        assertThat(exception.getStackTrace()).isNotEmpty();
+        assertThat(exception.getCause()).isSameAs(cause);
+        assertThat(exception.getMessage()).isEqualTo(cause.toString());
+    }
+
+    @Test
+    public void constructor_whenStackTraceIsNotWritable_shouldSkipIt() {
+        // Given
+        final HttpStatusCodeException cause = new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+
+        // When
+        final BarracksServiceClientException exception = new TestException(cause, false);
+        exception.fillInStackTrace();
+
+        // Then
+        assertThat(exception.getStackTrace()).isEmpty();
+        assertThat(exception.getCause()).isSameAs(cause);
+        assertThat(exception.getMessage()).isEqualTo(cause.toString());
+        assertThat(exception.toString()).contains("502");
+    }
+
+    private static final class TestException extends BarracksServiceClientException {
+        private TestException(HttpStatusCodeException cause, boolean writableStackTrace) {
+            super(cause, writableStackTrace);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.logging;
+
+import com.codahale.metrics.MetricRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MonitorTest {
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+    @Mock
+    private MethodSignature signature;
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setUp() throws Exception {
+        metricRegistry = new MetricRegistry();
+        doReturn(signature).when(joinPoint).getSignature();
+        doReturn(new Object()).when(joinPoint).getTarget();
+        doReturn(new Object[0]).when(joinPoint).getArgs();
+        doReturn(MonitorTest.class.getDeclaredMethod("setUp")).when(signature).getMethod();
+        doReturn(MonitorTest.class).when(signature).getDeclaringType();
+        doReturn("setUp").when(signature).getName();
+    }
+
+    @Test
+    public void logMethodCall_shouldRecordTimer_whenCallReturns() throws Throwable {
+        // Given
+        final Monitor monitor = new ManagerMonitor();
+        monitor.setMetricRegistry(metricRegistry);
+        doReturn("value").when(joinPoint).proceed();
+
+        // When
+        final Object first = monitor.logMethodCall(joinPoint);
+        final Object second = monitor.logMethodCall(joinPoint);
+
+        // Then
+        assertThat(first).isEqualTo("value");
+        assertThat(second).isEqualTo("value");
+        assertThat(metricRegistry.timer("manager.MonitorTest.setUp").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.meter("manager.MonitorTest.setUp.errors").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void logMethodCall_shouldRecordTimerAndError_whenCallThrows() throws Throwable {
+        // Given
+        final Monitor monitor = new ServiceClientMonitor(MonitorMode.TIMING);
+        monitor.setMetricRegistry(metricRegistry);
+        final IllegalStateException exception = new IllegalStateException();
+        doThrow(exception).when(joinPoint).proceed();
+
+        // Then When
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> monitor.logMethodCall(joinPoint));
+        assertThat(metricRegistry.timer("client.MonitorTest.setUp").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("client.MonitorTest.setUp.errors").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void logMethodCall_shouldOnlyProceed_whenModeIsOff() throws Throwable {
+        // Given
+        final Monitor monitor = new RestResourceMonitor(MonitorMode.OFF);
+        monitor.setMetricRegistry(metricRegistry);
+        doReturn("value").when(joinPoint).proceed();
+
+        // When
+        final Object result = monitor.logMethodCall(joinPoint);
+
+        // Then
+        assertThat(result).isEqualTo("value");
+        assertThat(metricRegistry.getMetrics()).isEmpty();
+    }
+}
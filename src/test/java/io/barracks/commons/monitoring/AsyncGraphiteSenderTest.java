@@ -0,0 +1,216 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.graphite.GraphiteSender;
+import com.codahale.metrics.graphite.PickledGraphite;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncGraphiteSenderTest {
+
+    private FakeCarbonListener carbon;
+
+    @Before
+    public void setUp() throws Exception {
+        carbon = new FakeCarbonListener();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        carbon.close();
+    }
+
+    @Test
+    public void send_shouldDeliverPickledBatches_whenListenerIsUp() throws Exception {
+        // Given
+        final PickledGraphite pickledGraphite = new PickledGraphite(carbon.getAddress(), 2);
+        final AsyncGraphiteSender sender = new AsyncGraphiteSender(pickledGraphite, 100, 2);
+
+        // When
+        sender.connect();
+        for (int i = 0; i < 5; i++) {
+            sender.send("barracks.metric" + i, Integer.toString(i), 1000L + i);
+        }
+        sender.flush();
+        final StringBuilder received = new StringBuilder();
+        for (int i = 0; i < 5 && !containsAllMetrics(received); i++) {
+            final String frame = carbon.frames.poll(5, TimeUnit.SECONDS);
+            assertThat(frame).isNotNull();
+            received.append(frame);
+        }
+        sender.close();
+
+        // Then
+        assertThat(containsAllMetrics(received)).isTrue();
+        assertThat(sender.getSentCount()).isEqualTo(5);
+        assertThat(sender.getDroppedCount()).isEqualTo(0);
+        assertThat(sender.getLatency().getCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void send_shouldDropOldestValues_whenQueueIsFull() throws Exception {
+        // Given
+        final AtomicReference<Runnable> worker = new AtomicReference<>();
+        final RecordingSender delegate = new RecordingSender();
+        final AsyncGraphiteSender sender = new AsyncGraphiteSender(delegate, 2, 10, worker::set);
+
+        // When
+        sender.send("a", "1", 1L);
+        sender.send("b", "2", 1L);
+        sender.send("c", "3", 1L);
+        sender.send("d", "4", 1L);
+        final Thread thread = new Thread(worker.get());
+        thread.start();
+        sender.close();
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Then
+        assertThat(sender.getDroppedCount()).isEqualTo(2);
+        assertThat(delegate.names).containsExactly("c", "d");
+        assertThat(sender.getSentCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void close_shouldDropPendingValues_whenListenerIsDown() throws Exception {
+        // Given
+        final InetSocketAddress address = carbon.getAddress();
+        carbon.close();
+        final AtomicReference<Runnable> worker = new AtomicReference<>();
+        final AsyncGraphiteSender sender = new AsyncGraphiteSender(new PickledGraphite(address, 10), 10, 10, worker::set);
+
+        // When
+        sender.send("a", "1", 1L);
+        sender.send("b", "2", 1L);
+        final Thread thread = new Thread(worker.get());
+        thread.start();
+        sender.close();
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Then
+        assertThat(sender.getSentCount()).isEqualTo(0);
+        assertThat(sender.getDroppedCount()).isEqualTo(2);
+        assertThat(sender.getFailures()).isGreaterThan(0);
+    }
+
+    private static boolean containsAllMetrics(CharSequence received) {
+        final String content = received.toString();
+        for (int i = 0; i < 5; i++) {
+            if (!content.contains("barracks.metric" + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class RecordingSender implements GraphiteSender {
+        private final List<String> names = new ArrayList<>();
+        private boolean connected;
+
+        @Override
+        public void connect() {
+            connected = true;
+        }
+
+        @Override
+        public void send(String name, String value, long timestamp) {
+            names.add(name);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public int getFailures() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+            connected = false;
+        }
+    }
+
+    private static class FakeCarbonListener {
+        private final ServerSocket serverSocket;
+        private final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+
+        private FakeCarbonListener() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            final Thread thread = new Thread(this::accept, "fake-carbon");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private InetSocketAddress getAddress() {
+            return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept();
+                     DataInputStream input = new DataInputStream(socket.getInputStream())) {
+                    while (true) {
+                        final byte[] payload = new byte[input.readInt()];
+                        input.readFully(payload);
+                        frames.add(new String(payload, StandardCharsets.ISO_8859_1));
+                    }
+                } catch (EOFException e) {
+                    // Client disconnected
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
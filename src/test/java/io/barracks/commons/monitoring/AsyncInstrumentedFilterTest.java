@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncInstrumentedFilterTest {
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private final AsyncInstrumentedFilter filter = new AsyncInstrumentedFilter(registry, "web");
+
+    @Test
+    public void doFilter_shouldTimeRequest_whenRequestIsSynchronous() throws Exception {
+        // Given
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/devices");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, (req, res) -> {
+        });
+
+        // Then
+        assertThat(registry.timer("web.requests").getCount()).isEqualTo(1);
+        assertThat(registry.meter("web.responseCodes.ok").getCount()).isEqualTo(1);
+        assertThat(registry.counter("web.activeRequests").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void doFilter_shouldTimeRequestUntilCompletion_whenRequestGoesAsync() throws Exception {
+        // Given
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+        request.setAsyncSupported(true);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final FilterChain chain = (req, res) -> req.startAsync();
+
+        // When
+        filter.doFilter(request, response, chain);
+        final long inFlight = registry.counter("web.asyncRequests").getCount();
+        final long timedBeforeCompletion = registry.timer("web.requests").getCount();
+        response.setStatus(201);
+        request.getAsyncContext().complete();
+
+        // Then
+        assertThat(inFlight).isEqualTo(1);
+        assertThat(timedBeforeCompletion).isEqualTo(0);
+        assertThat(registry.timer("web.requests").getCount()).isEqualTo(1);
+        assertThat(registry.meter("web.responseCodes.created").getCount()).isEqualTo(1);
+        assertThat(registry.counter("web.asyncRequests").getCount()).isEqualTo(0);
+        assertThat(registry.counter("web.activeRequests").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void doFilter_shouldMarkTimeout_whenAsyncRequestTimesOut() throws Exception {
+        // Given
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+        request.setAsyncSupported(true);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+        final MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+
+        // When
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        response.setStatus(503);
+        asyncContext.complete();
+
+        // Then
+        assertThat(registry.meter("web.timeouts").getCount()).isEqualTo(1);
+        assertThat(registry.meter("web.responseCodes.other").getCount()).isEqualTo(1);
+        assertThat(registry.timer("web.requests").getCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.graphite.GraphiteSender;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class AttributeFilteringGraphiteSenderTest {
+
+    @Test
+    public void send_shouldOnlyForwardEnabledAttributes_ofTimers() throws Exception {
+        // Given
+        final MetricRegistry registry = new MetricRegistry();
+        registry.timer("rest.DeviceResource.getDevice");
+        registry.counter("requests");
+        registry.register("jvm.memory.heap.max", (Gauge<Long>) () -> 1L);
+        final GraphiteSender delegate = mock(GraphiteSender.class);
+        final AttributeFilteringGraphiteSender sender = new AttributeFilteringGraphiteSender(
+                delegate,
+                registry,
+                "barracks",
+                EnumSet.complementOf(EnumSet.of(MetricAttribute.COUNT, MetricAttribute.P99))
+        );
+
+        // When
+        sender.send("barracks.rest.DeviceResource.getDevice.count", "1", 1L);
+        sender.send("barracks.rest.DeviceResource.getDevice.p99", "2", 1L);
+        sender.send("barracks.rest.DeviceResource.getDevice.max", "3", 1L);
+        sender.send("barracks.rest.DeviceResource.getDevice.m1_rate", "4", 1L);
+        sender.send("barracks.requests.count", "5", 1L);
+        sender.send("barracks.jvm.memory.heap.max", "6", 1L);
+
+        // Then
+        verify(delegate).send("barracks.rest.DeviceResource.getDevice.count", "1", 1L);
+        verify(delegate).send("barracks.rest.DeviceResource.getDevice.p99", "2", 1L);
+        verify(delegate, never()).send("barracks.rest.DeviceResource.getDevice.max", "3", 1L);
+        verify(delegate, never()).send("barracks.rest.DeviceResource.getDevice.m1_rate", "4", 1L);
+        verify(delegate).send("barracks.requests.count", "5", 1L);
+        verify(delegate).send("barracks.jvm.memory.heap.max", "6", 1L);
+    }
+}
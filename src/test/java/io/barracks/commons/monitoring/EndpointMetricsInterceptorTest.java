@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EndpointMetricsInterceptorTest {
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private final EndpointMetricsInterceptor interceptor = new EndpointMetricsInterceptor(registry);
+
+    @Test
+    public void afterCompletion_shouldTimeRequestByPatternAndStatusClass() {
+        // Given
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/devices/42");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/devices/{id}");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(204);
+
+        // When
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        // Then
+        assertThat(registry.getTimers()).containsOnlyKeys("web.endpoints.GET.devices_~id~.2xx");
+        assertThat(registry.timer("web.endpoints.GET.devices_~id~.2xx").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void afterCompletion_shouldCountServerError_whenHandlerThrows() {
+        // Given
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/devices");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/devices");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, new IllegalStateException());
+
+        // Then
+        assertThat(registry.timer("web.endpoints.POST.devices.5xx").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void afterCompletion_shouldTimeOnce_whenErrorPageIsDispatched() {
+        // Given
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/devices");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/devices");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, new IllegalStateException());
+
+        // When
+        request.setDispatcherType(DispatcherType.ERROR);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/error");
+        response.setStatus(500);
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        // Then
+        assertThat(registry.getTimers()).containsOnlyKeys("web.endpoints.POST.devices.5xx");
+        assertThat(registry.timer("web.endpoints.POST.devices.5xx").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void afterCompletion_shouldTimeEachRequestOnce() {
+        // Given
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/devices");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        // When
+        interceptor.afterCompletion(request, response, null, null);
+
+        // Then
+        assertThat(registry.timer("web.endpoints.GET.unmapped.2xx").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void afterCompletion_shouldKeepStartTime_whenRequestIsDispatchedAgain() throws Exception {
+        // Given
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+        Thread.sleep(20);
+
+        // When
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        // Then
+        final Timer timer = registry.timer("web.endpoints.GET.unmapped.2xx");
+        assertThat(timer.getCount()).isEqualTo(1);
+        assertThat(timer.getSnapshot().getMax()).isGreaterThanOrEqualTo(20000000L);
+    }
+
+    @Test
+    public void getTimer_shouldReturnCachedTimer() {
+        // When
+        final Timer first = interceptor.getTimer("GET", "/devices/{id}", 200);
+        final Timer second = interceptor.getTimer("GET", "/devices/{id}", 201);
+        final Timer other = interceptor.getTimer("GET", "/devices/{id}", 404);
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(other).isNotSameAs(first);
+    }
+
+    @Test
+    public void sanitize_shouldProduceGraphiteFriendlyNames() {
+        assertThat(EndpointMetricsInterceptor.sanitize("/devices/{id}/packages/{version:.+}")).isEqualTo("devices_~id~_packages_~version~");
+        assertThat(EndpointMetricsInterceptor.sanitize("/devices/{id:[0-9]{1,8}}/events")).isEqualTo("devices_~id~_events");
+        assertThat(EndpointMetricsInterceptor.sanitize("/device-events")).isEqualTo("device--events");
+        assertThat(EndpointMetricsInterceptor.sanitize("/**")).isEqualTo("-s-s");
+        assertThat(EndpointMetricsInterceptor.sanitize("/")).isEqualTo("_");
+        assertThat(EndpointMetricsInterceptor.sanitize("/a.b")).isEqualTo("a-db");
+        assertThat(EndpointMetricsInterceptor.sanitize("/a/b")).isEqualTo("a_b");
+    }
+
+    @Test
+    public void sanitize_shouldKeepDistinctPatternsDistinct() {
+        // Given
+        final List<String> patterns = Arrays.asList(
+                "/", "/root", "/a/b", "/a_b", "/a.b", "/a-b", "/a~b", "/a*b", "/a b", "/a/_b", "/a_/b", "/a__b",
+                "/devices/{id}", "/devices/id", "/devices/~id~", "/devices/{id}~", "/devices/{i}d", "/devices/{id}/**",
+                "/devices/{id}/--", "/devices/{id}/-s-s"
+        );
+
+        // When
+        final Set<String> names = patterns.stream().map(EndpointMetricsInterceptor::sanitize).collect(Collectors.toSet());
+
+        // Then
+        assertThat(names).hasSameSizeAs(patterns);
+    }
+}
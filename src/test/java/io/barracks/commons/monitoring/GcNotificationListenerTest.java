@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GcNotificationListenerTest {
+
+    @Test
+    public void handleNotification_shouldRecordPause_whenGcRuns() throws Exception {
+        // Given
+        final MetricRegistry registry = new MetricRegistry();
+        final GcNotificationListener listener = new GcNotificationListener(registry);
+        listener.start();
+
+        // When
+        Map<String, Histogram> pauses = registry.getHistograms((name, metric) -> name.startsWith("jvm.gc.pause."));
+        for (int i = 0; i < 50 && pauses.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(100);
+            pauses = registry.getHistograms((name, metric) -> name.startsWith("jvm.gc.pause."));
+        }
+        listener.close();
+
+        // Then
+        assertThat(pauses).isNotEmpty();
+        assertThat(pauses.keySet()).allMatch(name -> !name.contains(" "));
+        assertThat(registry.histogram("jvm.gc.allocated").getCount()).isGreaterThan(0);
+        assertThat(registry.histogram("jvm.gc.promoted").getCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void isConcurrent_shouldSeparateConcurrentCyclesFromPauses() {
+        assertThat(GcNotificationListener.isConcurrent("ConcurrentMarkSweep", "end of major GC")).isTrue();
+        assertThat(GcNotificationListener.isConcurrent("ZGC Cycles", "end of GC cycle")).isTrue();
+        assertThat(GcNotificationListener.isConcurrent("Shenandoah Cycles", "end of GC cycle")).isTrue();
+        assertThat(GcNotificationListener.isConcurrent("ParNew", "end of minor GC")).isFalse();
+        assertThat(GcNotificationListener.isConcurrent("G1 Young Generation", "end of minor GC")).isFalse();
+        assertThat(GcNotificationListener.isConcurrent("G1 Old Generation", "end of major GC")).isFalse();
+        assertThat(GcNotificationListener.isConcurrent("ZGC Pauses", "end of GC pause")).isFalse();
+        assertThat(GcNotificationListener.isConcurrent("G1 Concurrent GC", "end of concurrent GC pause")).isFalse();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class JvmMetricSetTest {
+
+    @Test
+    public void register_shouldAddJvmGauges() {
+        // Given
+        final MetricRegistry registry = new MetricRegistry();
+
+        // When
+        registry.register("jvm", new JvmMetricSet(1, TimeUnit.SECONDS));
+
+        // Then
+        assertThat(registry.getGauges()).containsKeys(
+                "jvm.memory.heap.used",
+                "jvm.thread-states.count",
+                "jvm.buffers.direct.count",
+                "jvm.classloader.loaded",
+                "jvm.allocation-rate"
+        );
+        assertThat(registry.getGauges().keySet().stream().anyMatch(name -> name.startsWith("jvm.garbage-collector."))).isTrue();
+    }
+
+    @Test
+    public void allocationRate_shouldBePositive_whenThreadsAllocate() {
+        // Given
+        final AllocationRateGauge gauge = new AllocationRateGauge(1, TimeUnit.SECONDS);
+        byte[][] garbage = new byte[100][];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = new byte[10000];
+        }
+
+        // When
+        final Double rate = gauge.getValue();
+
+        // Then
+        assertThat(garbage[99]).hasSize(10000);
+        assertThat(rate).isGreaterThan(0.0);
+    }
+
+    @Test
+    public void allocationRate_shouldCountEachThread_whenThreadsComeAndGo() {
+        // Given
+        final ThreadMXBean threads = mock(ThreadMXBean.class);
+        final AtomicLong tick = new AtomicLong();
+        doReturn(new long[]{1, 2}).when(threads).getAllThreadIds();
+        doReturn(new long[]{100, 1000}).when(threads).getThreadAllocatedBytes(new long[]{1, 2});
+        final AllocationRateGauge gauge = new AllocationRateGauge(threads, clock(tick), 1, TimeUnit.SECONDS);
+        doReturn(new long[]{1, 3}).when(threads).getAllThreadIds();
+        doReturn(new long[]{200, 50}).when(threads).getThreadAllocatedBytes(new long[]{1, 3});
+        tick.set(TimeUnit.SECONDS.toNanos(1));
+
+        // When
+        final Double rate = gauge.getValue();
+
+        // Then
+        assertThat(rate).isEqualTo(150.0);
+    }
+
+    @Test
+    public void allocationRate_shouldSampleOncePerInterval_whenReadSeveralTimes() {
+        // Given
+        final ThreadMXBean threads = mock(ThreadMXBean.class);
+        final AtomicLong tick = new AtomicLong();
+        doReturn(new long[]{1}).when(threads).getAllThreadIds();
+        doReturn(new long[]{0}).when(threads).getThreadAllocatedBytes(new long[]{1});
+        final AllocationRateGauge gauge = new AllocationRateGauge(threads, clock(tick), 10, TimeUnit.SECONDS);
+        doReturn(new long[]{500}).when(threads).getThreadAllocatedBytes(new long[]{1});
+        tick.set(TimeUnit.SECONDS.toNanos(5));
+
+        // When
+        final Double first = gauge.getValue();
+        tick.set(TimeUnit.SECONDS.toNanos(6));
+        final Double second = gauge.getValue();
+
+        // Then
+        assertThat(first).isEqualTo(100.0);
+        assertThat(second).isEqualTo(first);
+        verify(threads, times(2)).getAllThreadIds();
+    }
+
+    private static Clock clock(AtomicLong tick) {
+        return new Clock() {
+            @Override
+            public long getTick() {
+                return tick.get();
+            }
+        };
+    }
+}
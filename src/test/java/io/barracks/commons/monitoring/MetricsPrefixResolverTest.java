@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import io.barracks.commons.util.PublicAddressResolver;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class MetricsPrefixResolverTest {
+
+    private static final String CONTAINER_ID = "4f2c0a8f0d8c9b6c1e3f5a7b9d0e2f4a6c8e0b2d4f6a8c0e2b4d6f8a0c2e4b6d";
+
+    @Test
+    public void resolve_shouldNotCallPublicAddressResolver_whenPlaceholderIsAbsent() {
+        // Given
+        final MetricsPrefixResolver resolver = new MetricsPrefixResolver(new PublicAddressResolver() {
+            @Override
+            public InetAddress resolve() {
+                fail("Public address should not be resolved");
+                return null;
+            }
+        });
+
+        // When
+        final String result = resolver.resolve("barracks.{pid}.{hostname}");
+
+        // Then
+        assertThat(result).doesNotContain("{").doesNotContain("}");
+        assertThat(result).startsWith("barracks." + MetricsPrefixResolver.getPid() + ".");
+    }
+
+    @Test
+    public void resolve_shouldReplacePublicAddress_whenPlaceholderIsPresent() throws Exception {
+        // Given
+        final InetAddress address = InetAddress.getByName("10.0.0.1");
+        final MetricsPrefixResolver resolver = new MetricsPrefixResolver(new PublicAddressResolver() {
+            @Override
+            public InetAddress resolve() {
+                return address;
+            }
+        });
+
+        // When
+        final String result = resolver.resolve("barracks.{publicAddress}");
+
+        // Then
+        assertThat(result).isEqualTo("barracks.10_0_0_1");
+    }
+
+    @Test
+    public void parseContainerId_shouldReturnId_whenRunningInDocker() {
+        // Given
+        final String line = "12:memory:/docker/" + CONTAINER_ID;
+
+        // When
+        final String result = MetricsPrefixResolver.parseContainerId(Arrays.asList("13:name=systemd:/", line));
+
+        // Then
+        assertThat(result).isEqualTo(CONTAINER_ID);
+    }
+
+    @Test
+    public void parseContainerId_shouldReturnId_whenRunningInSystemdScope() {
+        // Given
+        final String line = "1:name=systemd:/system.slice/docker-" + CONTAINER_ID + ".scope";
+
+        // When
+        final String result = MetricsPrefixResolver.parseContainerId(Collections.singletonList(line));
+
+        // Then
+        assertThat(result).isEqualTo(CONTAINER_ID);
+    }
+
+    @Test
+    public void parseContainerId_shouldReturnUnknown_whenNotInContainer() {
+        // When
+        final String result = MetricsPrefixResolver.parseContainerId(Arrays.asList("0::/", "3:cpu:/user.slice"));
+
+        // Then
+        assertThat(result).isEqualTo(MetricsPrefixResolver.UNKNOWN);
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrometheusMetricsServletTest {
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private final PrometheusMetricsServlet servlet = new PrometheusMetricsServlet(registry);
+
+    @Test
+    public void write_shouldRenderEveryMetricType() throws Exception {
+        // Given
+        registry.register("jvm.memory.heap.usage", (Gauge<Double>) () -> 0.25);
+        registry.counter("web.activeRequests").inc(3);
+        registry.meter("web.responseCodes.ok").mark(7);
+        registry.timer("web.requests").update(2, TimeUnit.MILLISECONDS);
+        registry.histogram("jvm.gc.allocated").update(1024);
+        final StringWriter writer = new StringWriter();
+
+        // When
+        servlet.write(writer);
+
+        // Then
+        final String output = writer.toString();
+        assertThat(output).contains("# TYPE jvm_memory_heap_usage gauge\njvm_memory_heap_usage 0.25\n");
+        assertThat(output).contains("# TYPE web_activeRequests gauge\nweb_activeRequests 3\n");
+        assertThat(output).contains("# TYPE web_responseCodes_ok_total counter\nweb_responseCodes_ok_total 7\n");
+        assertThat(output).contains("# TYPE web_requests gauge\nweb_requests{quantile=\"0.5\"} 0.002\n");
+        assertThat(output).contains("web_requests{quantile=\"0.999\"} 0.002\n# TYPE web_requests_count counter\nweb_requests_count 1\n");
+        assertThat(output).contains("jvm_gc_allocated{quantile=\"0.99\"} 1024\n");
+    }
+
+    @Test
+    public void write_shouldExposeOnlyTheFirstMetric_whenSanitizedNamesCollide() throws Exception {
+        // Given
+        registry.counter("a.b").inc(1);
+        registry.counter("a_b").inc(2);
+        registry.timer("web.requests").update(2, TimeUnit.MILLISECONDS);
+        registry.counter("web.requests.count").inc(3);
+        final StringWriter writer = new StringWriter();
+
+        // When
+        servlet.write(writer);
+
+        // Then
+        final String output = writer.toString();
+        assertThat(output).contains("# TYPE a_b gauge\na_b 1\n");
+        assertThat(output).doesNotContain("a_b 2");
+        assertThat(output).contains("# TYPE web_requests_count counter\nweb_requests_count 1\n");
+        assertThat(output).doesNotContain("web_requests_count 3");
+        assertThat(output.split("# TYPE web_requests_count ")).hasSize(2);
+    }
+
+    @Test
+    public void write_shouldExposeTheFirstMetricByName_whenSanitizedNamesCollide() throws Exception {
+        // Given
+        registry.counter("a_b").inc(2);
+        registry.counter("a:b").inc(3);
+        registry.counter("a.b").inc(1);
+        registry.counter("a-b").inc(4);
+        final StringWriter writer = new StringWriter();
+
+        // When
+        servlet.write(writer);
+
+        // Then
+        assertThat(writer.toString()).isEqualTo("# TYPE a_b gauge\na_b 4\n# TYPE a:b gauge\na:b 3\n");
+    }
+
+    @Test
+    public void write_shouldForgetRemovedMetrics() throws Exception {
+        // Given
+        registry.counter("requests").inc();
+        registry.counter("sessions").inc();
+        servlet.write(new StringWriter());
+        registry.remove("sessions");
+        final StringWriter writer = new StringWriter();
+
+        // When
+        servlet.write(writer);
+
+        // Then
+        assertThat(writer.toString()).isEqualTo("# TYPE requests gauge\nrequests 1\n");
+        assertThat(servlet.getCachedFamilies()).isEqualTo(1);
+    }
+
+    @Test
+    public void doGet_shouldStreamTextFormat() throws Exception {
+        // Given
+        registry.counter("requests").inc();
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        servlet.doGet(new MockHttpServletRequest("GET", "/prometheus"), response);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).startsWith("text/plain");
+        assertThat(response.getContentAsString()).isEqualTo("# TYPE requests gauge\nrequests 1\n");
+    }
+
+    @Test
+    public void sanitize_shouldProduceValidPrometheusNames() {
+        assertThat(PrometheusMetricsServlet.sanitize("web.endpoints.GET.devices_id.2xx")).isEqualTo("web_endpoints_GET_devices_id_2xx");
+        assertThat(PrometheusMetricsServlet.sanitize("jvm.thread-states.count")).isEqualTo("jvm_thread_states_count");
+        assertThat(PrometheusMetricsServlet.sanitize("2xx")).isEqualTo("_2xx");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PublicMetricsGaugeSetTest {
+
+    @Test
+    public void getMetrics_shouldExposeGaugesKeepingNumericTypes() {
+        // Given
+        final PublicMetrics publicMetrics = mock(PublicMetrics.class);
+        when(publicMetrics.metrics()).thenReturn(Arrays.asList(
+                new org.springframework.boot.actuate.metrics.Metric<>("systemload.average", 0.75),
+                new org.springframework.boot.actuate.metrics.Metric<>("mem", 1024L)
+        ));
+        final PublicMetricsGaugeSet gaugeSet = new PublicMetricsGaugeSet(publicMetrics, 1, TimeUnit.HOURS);
+
+        // When
+        final Map<String, Metric> metrics = gaugeSet.getMetrics();
+
+        // Then
+        assertThat(metrics).containsOnlyKeys("systemload.average", "mem");
+        assertThat(((Gauge<?>) metrics.get("systemload.average")).getValue()).isEqualTo(0.75);
+        assertThat(((Gauge<?>) metrics.get("mem")).getValue()).isEqualTo(1024L);
+        verify(publicMetrics, times(1)).metrics();
+    }
+
+    @Test
+    public void getValue_shouldComputeMetricsAgain_whenSampleIsTooOld() {
+        // Given
+        final PublicMetrics publicMetrics = mock(PublicMetrics.class);
+        when(publicMetrics.metrics()).thenReturn(
+                Arrays.asList(new org.springframework.boot.actuate.metrics.Metric<>("threads", 10)),
+                Arrays.asList(new org.springframework.boot.actuate.metrics.Metric<>("threads", 12))
+        );
+        final Gauge<?> gauge = (Gauge<?>) new PublicMetricsGaugeSet(publicMetrics, 0, TimeUnit.SECONDS).getMetrics().get("threads");
+
+        // When
+        final Object value = gauge.getValue();
+
+        // Then
+        assertThat(value).isEqualTo(12);
+        verify(publicMetrics, times(2)).metrics();
+    }
+
+    @Test
+    public void refresh_shouldRegisterNewNamesAndRemoveStaleOnes_whenPublicMetricsChange() {
+        // Given
+        final PublicMetrics publicMetrics = mock(PublicMetrics.class);
+        when(publicMetrics.metrics()).thenReturn(
+                Arrays.asList(new org.springframework.boot.actuate.metrics.Metric<>("mem", 1024L)),
+                Arrays.asList(
+                        new org.springframework.boot.actuate.metrics.Metric<>("mem", 2048L),
+                        new org.springframework.boot.actuate.metrics.Metric<>("datasource.primary.active", 3)
+                ),
+                Arrays.asList(new org.springframework.boot.actuate.metrics.Metric<>("datasource.primary.active", 4))
+        );
+        final MetricRegistry registry = new MetricRegistry();
+        final PublicMetricsGaugeSet gaugeSet = new PublicMetricsGaugeSet(publicMetrics, 0, TimeUnit.SECONDS);
+        gaugeSet.registerIn(registry);
+
+        // When
+        gaugeSet.refresh();
+        final Map<String, Gauge> afterAppearance = registry.getGauges();
+        gaugeSet.refresh();
+        final Map<String, Gauge> afterDisappearance = registry.getGauges();
+
+        // Then
+        assertThat(afterAppearance).containsOnlyKeys("mem", "datasource.primary.active");
+        assertThat(afterDisappearance).containsOnlyKeys("datasource.primary.active");
+        assertThat(afterDisappearance.get("datasource.primary.active").getValue()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportingMetricFilterTest {
+
+    private final Metric metric = new Counter();
+
+    @Test
+    public void matches_shouldAcceptEverything_whenNoEntryIsGiven() {
+        // Given
+        final ReportingMetricFilter filter = new ReportingMetricFilter(null, null, 0);
+
+        // Then
+        assertThat(filter.matches("jvm.memory.heap.used", metric)).isTrue();
+        assertThat(filter.matches("web.requests", metric)).isTrue();
+    }
+
+    @Test
+    public void matches_shouldApplyIncludesAndExcludes() {
+        // Given
+        final ReportingMetricFilter filter = new ReportingMetricFilter(
+                Arrays.asList("jvm.memory", "regex:manager\\..*\\.errors"),
+                Collections.singletonList("jvm.memory.pools"),
+                0
+        );
+
+        // Then
+        assertThat(filter.matches("jvm.memory.heap.used", metric)).isTrue();
+        assertThat(filter.matches("jvm.memory.pools.Metaspace.usage", metric)).isFalse();
+        assertThat(filter.matches("manager.DeviceManager.getDevice.errors", metric)).isTrue();
+        assertThat(filter.matches("manager.DeviceManager.getDevice", metric)).isFalse();
+        assertThat(filter.matches("web.requests", metric)).isFalse();
+    }
+
+    @Test
+    public void matches_shouldRejectNewNamesAndCountOverflow_whenMaxSeriesIsReached() {
+        // Given
+        final ReportingMetricFilter filter = new ReportingMetricFilter(null, Collections.singletonList("excluded"), 2);
+
+        // When
+        final boolean first = filter.matches("first", metric);
+        final boolean excluded = filter.matches("excluded", metric);
+        final boolean second = filter.matches("second", metric);
+        final boolean third = filter.matches("third", metric);
+        final boolean fourth = filter.matches("fourth", metric);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(excluded).isFalse();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(fourth).isFalse();
+        assertThat(filter.matches("first", metric)).isTrue();
+        assertThat(filter.matches("third", metric)).isFalse();
+        assertThat(filter.getOverflow().getCount()).isEqualTo(3);
+        assertThat(filter.matches("monitoring.filter.overflow", filter.getOverflow())).isTrue();
+    }
+
+    @Test
+    public void matches_shouldCountEveryEnabledAttributeAsASeries() {
+        // Given
+        final ReportingMetricFilter all = new ReportingMetricFilter(null, null, 20);
+        final ReportingMetricFilter countOnly = new ReportingMetricFilter(
+                null, null, 20, EnumSet.complementOf(EnumSet.of(MetricAttribute.COUNT))
+        );
+
+        // When
+        final boolean firstTimer = all.matches("first", new Timer());
+        final boolean meter = all.matches("meter", new Meter());
+        final boolean secondTimer = all.matches("second", new Timer());
+        for (int i = 0; i < 20; i++) {
+            countOnly.matches("timer" + i, new Timer());
+        }
+
+        // Then
+        assertThat(firstTimer).isTrue();
+        assertThat(meter).isTrue();
+        assertThat(secondTimer).isFalse();
+        assertThat(all.getAcceptedSeries()).isEqualTo(20);
+        assertThat(countOnly.getAcceptedSeries()).isEqualTo(20);
+        assertThat(countOnly.matches("timer19", new Timer())).isTrue();
+    }
+
+    @Test
+    public void matches_shouldNotCacheRejectionsPastTheLimit() {
+        // Given
+        final ReportingMetricFilter filter = new ReportingMetricFilter(Collections.singletonList("kept"), null, 1);
+
+        // When
+        for (int i = 0; i < ReportingMetricFilter.MAX_CACHED_REJECTIONS * 2; i++) {
+            filter.matches("user." + i, metric);
+        }
+        filter.matches("kept.first", metric);
+        for (int i = 0; i < 100; i++) {
+            filter.matches("kept.other" + i, metric);
+        }
+
+        // Then
+        assertThat(filter.getCachedDecisions()).isEqualTo(ReportingMetricFilter.MAX_CACHED_REJECTIONS + 1);
+        assertThat(filter.matches("kept.first", metric)).isTrue();
+        assertThat(filter.getOverflow().getCount()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class ReservoirTest {
+
+    @Test
+    public void hdrHistogramReservoir_shouldReportPercentilesWithoutResettingOtherReaders() {
+        // Given
+        final HdrHistogramReservoir reservoir = new HdrHistogramReservoir(3);
+        for (long i = 1; i <= 1000; i++) {
+            reservoir.update(i);
+        }
+
+        // When
+        final Snapshot first = reservoir.getSnapshot();
+        final Snapshot second = reservoir.getSnapshot();
+
+        // Then
+        assertThat(first.size()).isEqualTo(1000);
+        assertThat(first.getMin()).isEqualTo(1);
+        assertThat(first.getMax()).isEqualTo(1000);
+        assertThat(first.getMean()).isCloseTo(500.5, within(0.5));
+        assertThat(first.get99thPercentile()).isCloseTo(990, within(1.0));
+        assertThat(first.get999thPercentile()).isCloseTo(999, within(1.0));
+        assertThat(second.size()).isEqualTo(1000);
+        assertThat(second.getMax()).isEqualTo(1000);
+        assertThat(reservoir.size()).isEqualTo(1000);
+    }
+
+    @Test
+    public void hdrHistogramReservoir_shouldOnlyKeepValuesOfTheWindow() {
+        // Given
+        final AtomicLong tick = new AtomicLong();
+        final HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, 60, TimeUnit.SECONDS, 6, new Clock() {
+            @Override
+            public long getTick() {
+                return tick.get();
+            }
+        });
+        reservoir.update(1);
+        reservoir.update(2);
+        reservoir.getSnapshot();
+        tick.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        reservoir.update(300);
+
+        // When
+        final Snapshot withinWindow = reservoir.getSnapshot();
+        tick.addAndGet(TimeUnit.SECONDS.toNanos(40));
+        final Snapshot afterWindow = reservoir.getSnapshot();
+
+        // Then
+        assertThat(withinWindow.size()).isEqualTo(3);
+        assertThat(withinWindow.getMin()).isEqualTo(1);
+        assertThat(afterWindow.size()).isEqualTo(1);
+        assertThat(afterWindow.getMin()).isEqualTo(300);
+    }
+
+    @Test
+    public void slidingTimeWindowArrayReservoir_shouldOnlyKeepValuesOfTheWindow() {
+        // Given
+        final AtomicLong tick = new AtomicLong();
+        final SlidingTimeWindowArrayReservoir reservoir = new SlidingTimeWindowArrayReservoir(10, TimeUnit.SECONDS, 1024, new Clock() {
+            @Override
+            public long getTick() {
+                return tick.get();
+            }
+        });
+        reservoir.update(1);
+        reservoir.update(2);
+        tick.addAndGet(TimeUnit.SECONDS.toNanos(8));
+        reservoir.update(3);
+
+        // When
+        tick.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        // Then
+        assertThat(snapshot.getValues()).containsExactly(3);
+    }
+
+    @Test
+    public void slidingTimeWindowArrayReservoir_shouldGrow_whenTheWindowHoldsMoreValues() {
+        // Given
+        final SlidingTimeWindowArrayReservoir reservoir = new SlidingTimeWindowArrayReservoir(10, TimeUnit.SECONDS, 1 << 20, new Clock() {
+            @Override
+            public long getTick() {
+                return 0;
+            }
+        });
+        final int initialCapacity = reservoir.capacity();
+
+        // When
+        for (int i = 0; i < 5000; i++) {
+            reservoir.update(i);
+        }
+
+        // Then
+        assertThat(initialCapacity).isLessThan(1 << 16);
+        assertThat(reservoir.capacity()).isGreaterThan(initialCapacity);
+        final Snapshot snapshot = reservoir.getSnapshot();
+        assertThat(snapshot.size()).isEqualTo(5000);
+        assertThat(snapshot.getMin()).isEqualTo(0);
+        assertThat(snapshot.getMax()).isEqualTo(4999);
+    }
+
+    @Test
+    public void slidingTimeWindowArrayReservoir_shouldNotGrow_whenOverwrittenValuesAreOutOfTheWindow() {
+        // Given
+        final AtomicLong tick = new AtomicLong();
+        final SlidingTimeWindowArrayReservoir reservoir = new SlidingTimeWindowArrayReservoir(10, TimeUnit.SECONDS, 1 << 20, new Clock() {
+            @Override
+            public long getTick() {
+                return tick.get();
+            }
+        });
+        final int initialCapacity = reservoir.capacity();
+
+        // When
+        for (int i = 0; i < 5000; i++) {
+            tick.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            reservoir.update(i);
+        }
+
+        // Then
+        assertThat(reservoir.capacity()).isEqualTo(initialCapacity);
+        assertThat(reservoir.getSnapshot().getMin()).isEqualTo(4989);
+    }
+
+    @Test
+    public void reservoirMetricRegistry_shouldCreateTimersWithFactoryReservoir() {
+        // Given
+        final ReservoirMetricRegistry registry = new ReservoirMetricRegistry(HdrHistogramReservoir::new);
+
+        // When
+        final Timer timer = registry.timer("web.requests");
+        timer.update(42, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(registry.timer("web.requests")).isSameAs(timer);
+        assertThat(timer.getSnapshot()).isInstanceOf(HdrHistogramReservoir.HdrHistogramSnapshot.class);
+        assertThat(registry.histogram("sizes").getSnapshot()).isInstanceOf(HdrHistogramReservoir.HdrHistogramSnapshot.class);
+    }
+
+    @Test
+    public void snapshotCachingReservoir_shouldReuseSnapshot_untilValueIsRecorded() {
+        // Given
+        final SnapshotCachingReservoir reservoir = new SnapshotCachingReservoir(new ExponentiallyDecayingReservoir());
+        reservoir.update(10);
+
+        // When
+        final Snapshot first = reservoir.getSnapshot();
+        final Snapshot second = reservoir.getSnapshot();
+        reservoir.update(20);
+        final Snapshot third = reservoir.getSnapshot();
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(third).isNotSameAs(first);
+        assertThat(third.getMax()).isEqualTo(20);
+    }
+}
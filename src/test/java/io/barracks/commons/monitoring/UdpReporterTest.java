@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.monitoring;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UdpReporterTest {
+
+    private final Clock clock = new Clock() {
+        @Override
+        public long getTick() {
+            return 0;
+        }
+
+        @Override
+        public long getTime() {
+            return 1234000L;
+        }
+    };
+    private MetricRegistry registry;
+    private DatagramSocket socket;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new MetricRegistry();
+        socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        socket.setSoTimeout(200);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        socket.close();
+    }
+
+    @Test
+    public void report_shouldSendCarbonLines_whenFormatIsCarbon() throws Exception {
+        // Given
+        registry.register("latency", (Gauge<Double>) () -> 0.0015);
+        registry.counter("requests").inc(3);
+        final UdpReporter reporter = reporterBuilder().prefixedWith("barracks").build(getAddress());
+
+        // When
+        reporter.report();
+        reporter.stop();
+
+        // Then
+        assertThat(receiveAll()).containsExactly("barracks.latency 0.0015 1234\nbarracks.requests.count 3 1234\n");
+    }
+
+    @Test
+    public void report_shouldSendStatsdGauges_whenFormatIsStatsd() throws Exception {
+        // Given
+        registry.register("weird name:1", (Gauge<Long>) () -> -42L);
+        final UdpReporter reporter = reporterBuilder().withFormat(UdpReporter.Format.STATSD).build(getAddress());
+
+        // When
+        reporter.report();
+        reporter.stop();
+
+        // Then
+        assertThat(receiveAll()).containsExactly("weird-name_1:-42|g\n");
+    }
+
+    @Test
+    public void report_shouldSplitPackets_whenMaxPacketSizeIsReached() throws Exception {
+        // Given
+        for (int i = 0; i < 20; i++) {
+            registry.counter("counter" + i).inc(i);
+        }
+        final UdpReporter reporter = reporterBuilder().withMaxPacketSize(64).build(getAddress());
+
+        // When
+        reporter.report();
+        reporter.stop();
+        final List<String> packets = receiveAll();
+
+        // Then
+        assertThat(packets.size()).isGreaterThan(1);
+        final StringBuilder lines = new StringBuilder();
+        for (String packet : packets) {
+            assertThat(packet.length()).isLessThanOrEqualTo(64);
+            assertThat(packet).endsWith("\n");
+            lines.append(packet);
+        }
+        for (int i = 0; i < 20; i++) {
+            assertThat(lines.toString()).contains("counter" + i + ".count " + i + " 1234\n");
+        }
+    }
+
+    @Test
+    public void report_shouldConvertTimerDurations() throws Exception {
+        // Given
+        registry.timer("call").update(1500, TimeUnit.MICROSECONDS);
+        final UdpReporter reporter = reporterBuilder().withFormat(UdpReporter.Format.STATSD).build(getAddress());
+
+        // When
+        reporter.report();
+        reporter.stop();
+
+        // Then
+        final String lines = String.join("", receiveAll());
+        assertThat(lines).contains("call.count:1|g\n");
+        assertThat(lines).contains("call.max:1.5|g\n");
+        assertThat(lines).contains("call.p99:1.5|g\n");
+    }
+
+    @Test
+    public void report_shouldSkipDisabledAttributes() throws Exception {
+        // Given
+        registry.timer("call").update(1500, TimeUnit.MICROSECONDS);
+        registry.counter("requests").inc();
+        final UdpReporter reporter = reporterBuilder()
+                .withFormat(UdpReporter.Format.STATSD)
+                .disabledMetricAttributes(EnumSet.complementOf(EnumSet.of(MetricAttribute.P99)))
+                .build(getAddress());
+
+        // When
+        reporter.report();
+        reporter.stop();
+
+        // Then
+        assertThat(String.join("", receiveAll())).isEqualTo("requests.count:1|g\ncall.p99:1.5|g\n");
+    }
+
+    private UdpReporter.Builder reporterBuilder() {
+        return UdpReporter.forRegistry(registry)
+                .withClock(clock)
+                .convertRatesTo(TimeUnit.SECONDS)
+                .convertDurationsTo(TimeUnit.MILLISECONDS);
+    }
+
+    private InetSocketAddress getAddress() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+    }
+
+    private List<String> receiveAll() throws Exception {
+        final List<String> packets = new ArrayList<>();
+        final byte[] data = new byte[2048];
+        while (true) {
+            final DatagramPacket packet = new DatagramPacket(data, data.length);
+            try {
+                socket.receive(packet);
+            } catch (SocketTimeoutException e) {
+                return packets;
+            }
+            packets.add(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.US_ASCII));
+        }
+    }
+}
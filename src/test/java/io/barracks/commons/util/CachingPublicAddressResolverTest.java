@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.util;
+
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingPublicAddressResolverTest {
+
+    @Test
+    public void resolve_shouldCallDelegateOnce_whenTtlIsNotOver() throws Exception {
+        // Given
+        final CountingResolver delegate = new CountingResolver("10.0.0.1");
+        final CachingPublicAddressResolver resolver = new CachingPublicAddressResolver(delegate, 1, TimeUnit.HOURS, null, Runnable::run);
+
+        // When
+        final InetAddress first = resolver.resolve();
+        final InetAddress second = resolver.resolve();
+
+        // Then
+        assertThat(first).isEqualTo(InetAddress.getByName("10.0.0.1"));
+        assertThat(second).isSameAs(first);
+        assertThat(delegate.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void resolve_shouldNotCallDelegate_whenOverrideIsSet() throws Exception {
+        // Given
+        final CountingResolver delegate = new CountingResolver("10.0.0.1");
+        final CachingPublicAddressResolver resolver = new CachingPublicAddressResolver(delegate, 0, TimeUnit.SECONDS, "192.168.1.1", Runnable::run);
+
+        // When
+        final InetAddress result = resolver.resolve();
+        resolver.resolve();
+
+        // Then
+        assertThat(result).isEqualTo(InetAddress.getByName("192.168.1.1"));
+        assertThat(delegate.calls.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void resolve_shouldRefreshAndServeLastKnownAddress_whenTtlIsOver() throws Exception {
+        // Given
+        final CountingResolver delegate = new CountingResolver("10.0.0.1");
+        final CachingPublicAddressResolver resolver = new CachingPublicAddressResolver(delegate, 0, TimeUnit.SECONDS, null, Runnable::run);
+        resolver.resolve();
+        delegate.address = "10.0.0.2";
+
+        // When
+        final InetAddress stale = resolver.resolve();
+        final InetAddress refreshed = resolver.resolve();
+
+        // Then
+        assertThat(stale).isEqualTo(InetAddress.getByName("10.0.0.1"));
+        assertThat(refreshed).isEqualTo(InetAddress.getByName("10.0.0.2"));
+    }
+
+    @Test
+    public void resolve_shouldKeepLastKnownAddress_whenRefreshFails() throws Exception {
+        // Given
+        final CountingResolver delegate = new CountingResolver("10.0.0.1");
+        final CachingPublicAddressResolver resolver = new CachingPublicAddressResolver(delegate, 0, TimeUnit.SECONDS, null, Runnable::run);
+        resolver.resolve();
+        delegate.address = null;
+
+        // When
+        resolver.resolve();
+        final InetAddress result = resolver.resolve();
+
+        // Then
+        assertThat(result).isEqualTo(InetAddress.getByName("10.0.0.1"));
+        assertThat(delegate.calls.get()).isGreaterThan(1);
+    }
+
+    private static class CountingResolver extends PublicAddressResolver {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile String address;
+
+        private CountingResolver(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public InetAddress resolve() {
+            calls.incrementAndGet();
+            if (address == null) {
+                throw new ResourceAccessException("Service unavailable");
+            }
+            try {
+                return InetAddress.getByName(address);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
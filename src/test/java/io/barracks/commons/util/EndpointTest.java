@@ -27,10 +27,23 @@ package io.barracks.commons.util;
 import org.junit.Test;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLEncoder;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
@@ -125,4 +138,200 @@ public class EndpointTest {
         // Then When
         assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> endpoint.withBase(baseUrl).getURI());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getURI_shouldExpandEachCallIndependently_whenTemplateIsReused() {
+        // Given
+        final Endpoint endpoint = Endpoint.from(HttpMethod.GET, "/plop/{arg1}", "filter={arg2}");
+
+        // When
+        final URI first = endpoint.withBase(baseUrl).getURI("a", "b");
+        final URI second = endpoint.withBase(baseUrl).getURI("c", null);
+
+        // Then
+        assertThat(first.toString()).isEqualTo(baseUrl + "/plop/a?filter=b");
+        assertThat(second.toString()).isEqualTo(baseUrl + "/plop/c?filter=");
+    }
+
+    @Test
+    public void getURI_shouldReplacePlaceholdersInBase_whenBaseContainsPlaceholders() {
+        // Given
+        final Endpoint endpoint = Endpoint.from(HttpMethod.GET, "/plop/{arg1}");
+
+        // When
+        final URI withPlaceholder = endpoint.withBase("https://{sub}." + host).getURI("api", "1");
+        final URI withoutPlaceholder = endpoint.withBase(baseUrl).getURI("1");
+
+        // Then
+        assertThat(withPlaceholder.toString()).isEqualTo("https://api." + host + "/plop/1");
+        assertThat(withoutPlaceholder.toString()).isEqualTo(baseUrl + "/plop/1");
+    }
+
+    @Test
+    public void getURI_shouldMatchUriComponentsBuilder_whenEndpointsAreRandom() throws Exception {
+        final Random random = new Random(42);
+        final String[] bases = {
+                baseUrl, baseUrl + "/", "http://" + host + ":8080", "https://" + host + ":0080", "HTTPS://" + host,
+                "https://user@" + host, "https://[::1]:8080", "https://" + host + ":", "https://{sub}." + host
+        };
+        final String[] paths = {null, "", "/a", "/a/{x}", "/{x}/{y}/end", "//a", "/a//{x}", "/a b", "/a%20b", "/a%2", "/a*b~c"};
+        final String[] queries = {
+                null, "", "a={x}", "a=1&b={y}", "a=1&a=2", "page=3", "x", "x=", "a=b=c", "{x}=1", "a=1&&b=2", "sort={x}", "q=%7E"
+        };
+        final String[] names = {"q", "a", "page", "size", "x y", "", "\u00E9", "b"};
+        final String[] values = {"1", "", "a b", "1/2", "%", "\u00E9", "*~", "&=?#"};
+
+        for (int i = 0; i < 5000; i++) {
+            final String base = bases[random.nextInt(bases.length)];
+            final String path = paths[random.nextInt(paths.length)];
+            final String query = queries[random.nextInt(queries.length)];
+            final Endpoint endpoint = query == null ? Endpoint.from(HttpMethod.GET, path) : Endpoint.from(HttpMethod.GET, path, query);
+
+            final Pageable pageable;
+            switch (random.nextInt(3)) {
+                case 0:
+                    pageable = null;
+                    break;
+                case 1:
+                    pageable = new PageRequest(random.nextInt(5), 1 + random.nextInt(50));
+                    break;
+                default:
+                    pageable = new PageRequest(random.nextInt(5), 1 + random.nextInt(50),
+                            new Sort(new Sort.Order(Sort.Direction.DESC, values[random.nextInt(values.length)] + "x"), new Sort.Order("name")));
+            }
+
+            final MultiValueMap<String, String> queryParams = random.nextBoolean() ? null : randomQueryParams(random, names, values);
+
+            final String source = base + (path == null ? "" : path) + (query == null ? "" : "?" + query);
+            final Object[] args = new Object[countPlaceholders(source)];
+            for (int j = 0; j < args.length; j++) {
+                args[j] = random.nextInt(8) == 0 ? null : values[random.nextInt(values.length)];
+            }
+
+            final String expected = outcome(() -> legacyURI(source, pageable, queryParams, args));
+            final String actual = outcome(() -> endpoint.withBase(base).pageable(pageable).queryParams(queryParams).getURI(args));
+            assertThat(actual).as("%s %s %s %s", source, pageable, queryParams, Arrays.toString(args)).isEqualTo(expected);
+        }
+    }
+
+    private static MultiValueMap<String, String> randomQueryParams(Random random, String[] names, String[] values) {
+        final MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+        final int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            final String name = names[random.nextInt(names.length)];
+            final int valueCount = random.nextInt(3);
+            queryParams.put(name, new ArrayList<>());
+            for (int j = 0; j < valueCount; j++) {
+                queryParams.add(name, random.nextInt(8) == 0 ? null : values[random.nextInt(values.length)]);
+            }
+        }
+        return queryParams;
+    }
+
+    private static String outcome(Callable<URI> callable) {
+        try {
+            return callable.call().toString();
+        } catch (Exception e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static int countPlaceholders(String source) {
+        final Matcher matcher = Pattern.compile("\\{\\p{Alnum}*}").matcher(source);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Copy of the original {@code Endpoint.getURI} implementation, the reference the fast path must match.
+     */
+    private static URI legacyURI(String source, Pageable pageable, MultiValueMap<String, String> queryParams, Object... args) {
+        return UriComponentsBuilder.fromHttpUrl(legacyExpandUrl(source, args))
+                .queryParams(legacySerializePageable(pageable))
+                .queryParams(legacySerializeQueryParams(queryParams))
+                .build(true)
+                .toUri();
+    }
+
+    private static String legacyExpandUrl(String preFormatted, Object... args) {
+        final Matcher matcher = Pattern.compile("(\\{\\p{Alnum}*})").matcher(preFormatted);
+        List<String> elements = new ArrayList<>();
+        int searchIdx = 0;
+        while (matcher.find(searchIdx) && matcher.group(1) != null) {
+            elements.add(preFormatted.substring(searchIdx, matcher.start()));
+            elements.add(null);
+            searchIdx = matcher.end();
+        }
+        if (searchIdx == preFormatted.length()) {
+            elements.add("");
+        } else {
+            elements.add(preFormatted.substring(searchIdx));
+        }
+        if (elements.isEmpty()) {
+            elements.add(preFormatted);
+        }
+        if (args.length != (elements.size() - 1) / 2) {
+            throw new IllegalArgumentException(
+                    "Failed format '" + preFormatted + "', " +
+                            "expected " + ((elements.size() - 1) / 2) + " arguments, " +
+                            "" + args.length + " provided"
+            );
+        }
+        Iterator<String> iterator = Arrays.asList(legacySerializeArgs(args)).iterator();
+        return elements.stream()
+                .map(element ->
+                        element == null ? iterator.next() : element
+                )
+                .collect(Collectors.joining());
+    }
+
+    private static String[] legacySerializeArgs(Object... args) {
+        return Stream.of(args)
+                .map(object -> object == null ? "" : legacyEncode(object.toString()))
+                .collect(Collectors.toList())
+                .toArray(new String[0]);
+    }
+
+    private static MultiValueMap<String, String> legacySerializePageable(Pageable pageable) {
+        final MultiValueMap<String, String> result = new LinkedMultiValueMap<>();
+        if (pageable != null) {
+            result.set("page", String.valueOf(pageable.getPageNumber()));
+            result.set("size", String.valueOf(pageable.getPageSize()));
+            if (pageable.getSort() != null) {
+                for (Sort.Order order : pageable.getSort()) {
+                    final String sortValue = String.join(",", legacyEncode(order.getProperty()), order.getDirection().name().toLowerCase(Locale.US));
+                    result.add("sort", sortValue);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static MultiValueMap<String, String> legacySerializeQueryParams(MultiValueMap<String, String> queryParams) {
+        if (queryParams == null)
+            return null;
+        return new LinkedMultiValueMap<>(
+                queryParams.entrySet().stream()
+                        .collect(Collectors.toMap(
+                                entry -> legacyEncode(entry.getKey()),
+                                entry -> entry.getValue().stream()
+                                        .map(EndpointTest::legacyEncode)
+                                        .collect(Collectors.toList())
+                        ))
+        );
+    }
+
+    private static String legacyEncode(String str) {
+        try {
+            if (str != null) {
+                return URLEncoder.encode(str, UTF_8.name()).replaceAll("\\+", "%20");
+            }
+            return "";
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("Should not happen", e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class RacingPublicAddressResolverTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    public void resolve_shouldReturnFastestAnswer_whenServicesAnswerAtDifferentSpeeds() throws Exception {
+        // Given
+        final String slow = startService(200, "{\"ip\":\"10.0.0.1\"}", 1500);
+        final String fast = startService(200, "{\"ip\":\"10.0.0.2\"}", 0);
+        final RacingPublicAddressResolver resolver = new RacingPublicAddressResolver(Arrays.asList(slow, fast), 5, TimeUnit.SECONDS);
+
+        // When
+        final long start = System.nanoTime();
+        final InetAddress result = resolver.resolve();
+
+        // Then
+        assertThat(result).isEqualTo(InetAddress.getByName("10.0.0.2"));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1500);
+    }
+
+    @Test
+    public void resolve_shouldIgnoreFailingServices_whenAnotherOneAnswers() throws Exception {
+        // Given
+        final String failing = startService(500, "oops", 0);
+        final String invalid = startService(200, "{}", 0);
+        final String working = startService(200, "{\"ip\":\"10.0.0.3\"}", 100);
+        final RacingPublicAddressResolver resolver = new RacingPublicAddressResolver(Arrays.asList(failing, invalid, working), 5, TimeUnit.SECONDS);
+
+        // When
+        final InetAddress result = resolver.resolve();
+
+        // Then
+        assertThat(result).isEqualTo(InetAddress.getByName("10.0.0.3"));
+    }
+
+    @Test
+    public void resolve_shouldThrowException_whenNoServiceAnswersBeforeDeadline() throws Exception {
+        // Given
+        final String hung = startService(200, "{\"ip\":\"10.0.0.4\"}", 1000);
+        final RacingPublicAddressResolver resolver = new RacingPublicAddressResolver(Arrays.asList(hung, hung), 200, TimeUnit.MILLISECONDS);
+
+        // When
+        final long start = System.nanoTime();
+
+        // Then
+        assertThatExceptionOfType(PublicIpResolverException.class).isThrownBy(resolver::resolve);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(900);
+    }
+
+    private String startService(int status, String body, long delayMillis) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] content = body.getBytes(UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, content.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(content);
+            } catch (IOException e) {
+                // Client went away
+            }
+        });
+        server.start();
+        servers.add(server);
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+}
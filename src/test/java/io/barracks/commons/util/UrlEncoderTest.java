@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.commons.util;
+
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UrlEncoderTest {
+
+    @Test
+    public void encode_shouldReturnSameInstance_whenNothingNeedsEncoding() {
+        // Given
+        final String value = "abcXYZ019-._*";
+
+        // When
+        final String result = UrlEncoder.encode(value);
+
+        // Then
+        assertThat(result).isSameAs(value);
+    }
+
+    @Test
+    public void encode_shouldMatchUrlEncoder_whenValuesContainReservedCharacters() throws Exception {
+        final String[] values = {
+                "", " ", "a b", "1/abc", "/%1", "a+b", "~", "?&=#", "name,asc", "\"quotes'", "tab\tnewline\n",
+                "\u00E9\u00E0\u00FC", "\u65E5\u672C\u8A9E", "\uD83D\uDE00", "\uD83D", "a\uDE00b", "\u0000\u007F\u0080\u07FF\u0800\uFFFF"
+        };
+        for (String value : values) {
+            assertThat(UrlEncoder.encode(value)).isEqualTo(legacyEncode(value));
+        }
+    }
+
+    @Test
+    public void encode_shouldMatchUrlEncoder_whenValuesAreRandom() throws Exception {
+        final Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            final char[] chars = new char[random.nextInt(16)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = random.nextBoolean() ? (char) random.nextInt(128) : (char) random.nextInt(Character.MAX_VALUE + 1);
+            }
+            final String value = new String(chars);
+            assertThat(UrlEncoder.encode(value)).isEqualTo(legacyEncode(value));
+        }
+    }
+
+    @Test
+    public void encode_shouldAppendToBuilder() {
+        // Given
+        final StringBuilder builder = new StringBuilder("/plop/");
+
+        // When
+        UrlEncoder.encode("1/abc", builder);
+        UrlEncoder.encode("def", builder);
+
+        // Then
+        assertThat(builder.toString()).isEqualTo("/plop/1%2Fabcdef");
+    }
+
+    private static String legacyEncode(String value) throws UnsupportedEncodingException {
+        return URLEncoder.encode(value, UTF_8.name()).replaceAll("\\+", "%20");
+    }
+}